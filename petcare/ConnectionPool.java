@@ -0,0 +1,471 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded JDBC connection pool used by Database.
+// Connections handed out are proxies: close() returns the physical connection to the pool.
+// Each physical connection keeps an LRU cache of its prepared statements, so the fixed SQL
+// strings in Database are parsed (and server-side prepared) once per connection.
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validateAfterIdleMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LatencyHistogram acquireWait = new LatencyHistogram();
+    private final AtomicLong stmtCacheHits = new AtomicLong();
+    private final AtomicLong stmtCacheMisses = new AtomicLong();
+    private final AtomicLong stmtCacheEvictions = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String pass, int minSize, int maxSize,
+                          long acquireTimeoutMs, long idleTimeoutMs, long validateAfterIdleMs, long leakThresholdMs,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "petcare-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs, leakThresholdMs > 0 ? leakThresholdMs : idleTimeoutMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Borrow a connection, waiting at most acquireTimeoutMs for one to become free
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        DatabaseMetrics.Call call = DatabaseMetrics.isEnabled() ? DatabaseMetrics.enter() : null;
+        try {
+            return borrow(call);
+        } catch (SQLException | RuntimeException e) {
+            if (call != null) DatabaseMetrics.exit(call, true);
+            throw e;
+        }
+    }
+
+    private Connection borrow(DatabaseMetrics.Call call) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + acquireTimeoutMs
+                        + "ms waiting for a connection (active=" + inUse.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (validate(pc)) break;
+                validationFailures.incrementAndGet();
+                destroy(pc);
+            }
+            if (pc == null) pc = create();
+
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowTrace = leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+            pc.leakReported = false;
+            inUse.add(pc);
+            borrowed.incrementAndGet();
+
+            long waited = System.nanoTime() - start;
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            acquireWait.record(waited);
+            return pc.newHandle(call);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Return a borrowed connection, resetting any transaction state left behind
+    private void release(PooledConnection pc) {
+        if (!inUse.remove(pc)) return;
+        try {
+            pc.resetStatements();
+            if (!pc.raw.getAutoCommit()) {
+                pc.raw.rollback();
+                pc.raw.setAutoCommit(true);
+            }
+            pc.lastUsed = System.currentTimeMillis();
+            if (closed) {
+                destroy(pc);
+            } else {
+                idle.offerFirst(pc);
+            }
+        } catch (SQLException e) {
+            destroy(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean validate(PooledConnection pc) {
+        try {
+            if (pc.raw.isClosed()) return false;
+            if (System.currentTimeMillis() - pc.lastUsed < validateAfterIdleMs) return true;
+            return pc.raw.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, pass);
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        pc.statements.clear();
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // Evict idle connections, report leaks and keep minSize connections warm
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : idle) {
+            if (total.get() <= minSize) break;
+            if (now - pc.lastUsed > idleTimeoutMs && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pc : inUse) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMs) {
+                    pc.leakReported = true;
+                    leaks.incrementAndGet();
+                    System.err.println("Possible connection leak: connection held for " + (now - pc.borrowedAt) + "ms");
+                    if (pc.borrowTrace != null) pc.borrowTrace.printStackTrace();
+                }
+            }
+        }
+
+        while (!closed && total.get() < minSize) {
+            try {
+                PooledConnection pc = create();
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                break;
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.total = total.get();
+        s.active = inUse.size();
+        s.idle = idle.size();
+        s.waiting = permits.getQueueLength();
+        s.borrowed = borrowed.get();
+        s.created = created.get();
+        s.destroyed = destroyed.get();
+        s.timeouts = timeouts.get();
+        s.validationFailures = validationFailures.get();
+        s.leaks = leaks.get();
+        s.avgWaitMicros = s.borrowed == 0 ? 0 : waitNanos.get() / s.borrowed / 1000;
+        s.maxWaitMicros = maxWaitNanos.get() / 1000;
+        s.stmtCacheHits = stmtCacheHits.get();
+        s.stmtCacheMisses = stmtCacheMisses.get();
+        s.stmtCacheEvictions = stmtCacheEvictions.get();
+        return s;
+    }
+
+    // Distribution of the time callers spent in borrow()
+    public LatencyHistogram getAcquireWait() {
+        return acquireWait;
+    }
+
+    public static class Stats {
+        public int total;
+        public int active;
+        public int idle;
+        public int waiting;
+        public long borrowed;
+        public long created;
+        public long destroyed;
+        public long timeouts;
+        public long validationFailures;
+        public long leaks;
+        public long avgWaitMicros;
+        public long maxWaitMicros;
+        public long stmtCacheHits;
+        public long stmtCacheMisses;
+        public long stmtCacheEvictions;
+
+        public double stmtCacheHitRate() {
+            long lookups = stmtCacheHits + stmtCacheMisses;
+            return lookups == 0 ? 0 : (double) stmtCacheHits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "total=" + total + ", active=" + active + ", idle=" + idle + ", waiting=" + waiting
+                    + ", borrowed=" + borrowed + ", created=" + created + ", destroyed=" + destroyed
+                    + ", timeouts=" + timeouts + ", validationFailures=" + validationFailures + ", leaks=" + leaks
+                    + ", avgWait=" + avgWaitMicros + "us, maxWait=" + maxWaitMicros + "us"
+                    + ", stmtCache hits=" + stmtCacheHits + ", misses=" + stmtCacheMisses
+                    + ", evictions=" + stmtCacheEvictions;
+        }
+    }
+
+    private class PooledConnection {
+        final Connection raw;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Exception borrowTrace;
+        volatile boolean leakReported;
+
+        // Only touched by the thread currently holding the connection
+        final Map<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() <= statementCacheSize || eldest.getValue().inUse) return false;
+                stmtCacheEvictions.incrementAndGet();
+                closeQuietly(eldest.getValue().raw);
+                return true;
+            }
+        };
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement prepare(Connection handle, String sql, int autoGeneratedKeys) throws SQLException {
+            if (statementCacheSize <= 0) return raw.prepareStatement(sql, autoGeneratedKeys);
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                stmtCacheHits.incrementAndGet();
+            } else if (cached != null) {
+                // Same SQL already open on this connection (nested use): hand out an uncached statement
+                stmtCacheMisses.incrementAndGet();
+                return raw.prepareStatement(sql, autoGeneratedKeys);
+            } else {
+                stmtCacheMisses.incrementAndGet();
+                cached = new CachedStatement(raw.prepareStatement(sql, autoGeneratedKeys));
+                statements.put(key, cached);
+            }
+            cached.inUse = true;
+            return cached.newHandle(handle);
+        }
+
+        void resetStatements() {
+            for (Iterator<CachedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                CachedStatement cached = it.next();
+                if (cached.inUse) {
+                    // Never closed by its borrower; do not trust its state for the next one
+                    closeQuietly(cached.raw);
+                    it.remove();
+                }
+            }
+        }
+
+        // Each borrow gets its own handle so a stale reference cannot touch the next borrower's work
+        Connection newHandle(DatabaseMetrics.Call call) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this, call));
+        }
+    }
+
+    private record StatementKey(String sql, int autoGeneratedKeys) {
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement raw;
+        boolean inUse;
+
+        CachedStatement(PreparedStatement raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement newHandle(Connection connection) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this, connection));
+        }
+    }
+
+    // Logical view of a cached statement: close() clears it and hands it back to the cache
+    private static class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+        private boolean released;
+
+        StatementHandle(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        try {
+                            ResultSet rs = cached.raw.getResultSet();
+                            if (rs != null) rs.close();
+                            cached.raw.clearParameters();
+                            cached.raw.clearBatch();
+                        } finally {
+                            cached.inUse = false;
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return released || cached.raw.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + cached.raw;
+                default:
+                    if (released) throw new SQLException("Statement has been closed");
+                    try {
+                        return method.invoke(cached.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        // Null when metrics are disabled
+        private final DatabaseMetrics.Call call;
+        private boolean released;
+
+        Handle(PooledConnection pc, DatabaseMetrics.Call call) {
+            this.pc = pc;
+            this.call = call;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pc);
+                        if (call != null) DatabaseMetrics.exit(call, false);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.raw;
+                case "prepareStatement":
+                    if (released) throw new SQLException("Connection has been returned to the pool");
+                    PreparedStatement stmt;
+                    if (args.length == 1) {
+                        stmt = pc.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                    } else if (args.length == 2 && method.getParameterTypes()[1] == int.class) {
+                        stmt = pc.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                    } else {
+                        // cursor/holdability variants are never cached
+                        stmt = (PreparedStatement) invokeRaw(method, args);
+                    }
+                    return call != null ? DatabaseMetrics.meter(stmt, (Connection) proxy, (String) args[0], call) : stmt;
+                default:
+                    if (released) throw new SQLException("Connection has been returned to the pool");
+                    return invokeRaw(method, args);
+            }
+        }
+
+        private Object invokeRaw(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Creates the schema from schema.sql and bulk-loads a synthetic dataset with realistic skew:
+// a few providers get most bookings and a few users get most notifications (Zipf distributed).
+//
+// Run against a scratch database:
+//   java -Dpetcare.db.url=jdbc:mysql://localhost:3307/petcare_load?rewriteBatchedStatements=true \
+//        -Dgen.owners=1000000 -Dgen.bookings=5000000 -cp .:mysql-connector-j-9.3.0.jar DataGenerator
+//
+// Volumes (defaults in brackets): gen.owners [10000], gen.providers [200], gen.managers [20],
+// gen.petsPerOwner [2], gen.servicesPerProvider [5], gen.slotsPerService [8, at most 12], gen.bookings [50000],
+// gen.updatesPerBooking [2], gen.notifications [200000], gen.tickets [5000], gen.schedules [20000],
+// gen.blobBytes [0] (size of generated pictures/logos/images), gen.seed [42], gen.schema [schema.sql]
+public class DataGenerator {
+    private static final int BATCH_SIZE = 1000;
+    // Hourly slots from 08:00 to 19:00
+    private static final int MAX_SLOTS_PER_SERVICE = 12;
+    private static final String[] SERVICE_TYPES = {
+            "Tắm rửa", "Cắt tỉa lông", "Khám thú y", "Tiêm phòng", "Trông giữ thú cưng", "Huấn luyện", "Dắt đi dạo"
+    };
+    private static final String[] CITIES = {"Hà Nội", "Hồ Chí Minh", "Đà Nẵng", "Hải Phòng", "Cần Thơ", "Huế"};
+    private static final String[] BREEDS = {"Poodle", "Corgi", "Husky", "Phốc sóc", "Mèo Anh lông ngắn", "Mèo ta", "Golden"};
+    private static final String[] REPEAT_OPTIONS = {"daily", "daily", "weekly", "monthly", "none"};
+    private static final String[] TICKET_STATUSES = {"pending", "solving", "solved", "closed"};
+
+    private final Random random;
+    private final byte[] blob;
+
+    private int firstManager;
+    private int managers;
+    private int firstProvider;
+    private int providers;
+    private int firstOwner;
+    private int owners;
+    private int firstService;
+    private int[] serviceSlots;
+    private int[] petStart;
+    private int[] petCount;
+
+    DataGenerator(long seed, int blobBytes) {
+        this.random = new Random(seed);
+        this.blob = blobBytes > 0 ? new byte[blobBytes] : null;
+        if (blob != null) random.nextBytes(blob);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int slotsPerService = Integer.getInteger("gen.slotsPerService", 8);
+        if (slotsPerService < 1 || slotsPerService > MAX_SLOTS_PER_SERVICE) {
+            throw new IllegalArgumentException("gen.slotsPerService must be between 1 and " + MAX_SLOTS_PER_SERVICE);
+        }
+        DataGenerator gen = new DataGenerator(Long.getLong("gen.seed", 42), Integer.getInteger("gen.blobBytes", 0));
+        long start = System.nanoTime();
+        try (Connection conn = Database.getConnection()) {
+            createSchema(conn, Path.of(System.getProperty("gen.schema", "schema.sql")));
+            // Parent and child batches flush independently, so foreign keys are checked only after the load
+            setForeignKeyChecks(conn, false);
+            conn.setAutoCommit(false);
+            try {
+                gen.users(conn, Integer.getInteger("gen.managers", 20), Integer.getInteger("gen.providers", 200),
+                        Integer.getInteger("gen.owners", 10_000));
+                gen.catalog(conn, Integer.getInteger("gen.servicesPerProvider", 5), slotsPerService);
+                gen.pets(conn, Integer.getInteger("gen.petsPerOwner", 2));
+                gen.bookings(conn, Integer.getInteger("gen.bookings", 50_000), Integer.getInteger("gen.updatesPerBooking", 2));
+                gen.notifications(conn, Integer.getInteger("gen.notifications", 200_000));
+                gen.tickets(conn, Integer.getInteger("gen.tickets", 5_000));
+                gen.schedules(conn, Integer.getInteger("gen.schedules", 20_000));
+            } finally {
+                conn.setAutoCommit(true);
+                setForeignKeyChecks(conn, true);
+            }
+        } finally {
+            Database.shutdown();
+        }
+        System.out.printf("done in %.1fs%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void setForeignKeyChecks(Connection conn, boolean enabled) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET FOREIGN_KEY_CHECKS = " + (enabled ? 1 : 0));
+        }
+    }
+
+    static void createSchema(Connection conn, Path schema) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String line : Files.readAllLines(schema)) {
+            if (!line.trim().startsWith("--")) sql.append(line).append('\n');
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String ddl : sql.toString().split(";")) {
+                if (!ddl.isBlank()) stmt.execute(ddl);
+            }
+        }
+    }
+
+    private void users(Connection conn, int managerCount, int providerCount, int ownerCount) throws SQLException {
+        int next = nextId(conn, "user", "userid");
+        firstManager = next;
+        managers = managerCount;
+        firstProvider = firstManager + managerCount;
+        providers = providerCount;
+        firstOwner = firstProvider + providerCount;
+        owners = ownerCount;
+
+        try (Batch users = new Batch(conn, "INSERT INTO user (userid, name, email, password, gender, role) VALUES (?, ?, ?, ?, ?, ?)");
+             Batch managerRows = new Batch(conn, "INSERT INTO manager (id) VALUES (?)");
+             Batch providerRows = new Batch(conn, "INSERT INTO serviceprovider (id, bussiness_name, logo, phone, description, address, website) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             Batch ownerRows = new Batch(conn, "INSERT INTO petowner (id, phone, city, address) VALUES (?, ?, ?, ?)")) {
+            for (int id = firstManager; id < firstOwner + ownerCount; id++) {
+                String role = id < firstProvider ? "manager" : id < firstOwner ? "service provider" : "pet owner";
+                users.add(id, "user " + id, "user" + id + "@gen.local", "x", random.nextBoolean() ? "male" : "female", role);
+                if (id < firstProvider) {
+                    managerRows.add(id);
+                } else if (id < firstOwner) {
+                    providerRows.add(id, "Pet shop " + id, blob, phone(), "Dịch vụ chăm sóc thú cưng " + id,
+                            pick(CITIES), "https://shop" + id + ".example");
+                } else {
+                    ownerRows.add(id, phone(), pick(CITIES), "Số " + random.nextInt(500) + ", đường " + random.nextInt(100));
+                }
+            }
+        }
+        conn.commit();
+        System.out.printf("users: %d managers, %d providers, %d owners%n", managerCount, providerCount, ownerCount);
+    }
+
+    private void catalog(Connection conn, int servicesPerProvider, int slotsPerService) throws SQLException {
+        int firstType = nextId(conn, "servicetype", "typeid");
+        try (Batch types = new Batch(conn, "INSERT INTO servicetype (typeid, type) VALUES (?, ?)")) {
+            for (int i = 0; i < SERVICE_TYPES.length; i++) types.add(firstType + i, SERVICE_TYPES[i]);
+        }
+
+        firstService = nextId(conn, "service", "serviceid");
+        int services = 0;
+        int[] perProvider = new int[providers];
+        for (int p = 0; p < providers; p++) {
+            perProvider[p] = 1 + random.nextInt(2 * servicesPerProvider);
+            services += perProvider[p];
+        }
+        serviceSlots = new int[services];
+        try (Batch rows = new Batch(conn, "INSERT INTO service (serviceid, name, price, description, duration, license, typeid, providerid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             Batch slots = new Batch(conn, "INSERT INTO timeslot (serviceid, slot) VALUES (?, ?)")) {
+            int id = firstService;
+            for (int p = 0; p < providers; p++) {
+                for (int i = 0; i < perProvider[p]; i++, id++) {
+                    int type = random.nextInt(SERVICE_TYPES.length);
+                    rows.add(id, SERVICE_TYPES[type] + " " + id, 50_000 + 10_000 * random.nextInt(96),
+                            SERVICE_TYPES[type] + " cho chó mèo, nhận tại nhà", Time.valueOf(String.format("%02d:%02d:00", random.nextInt(3), 30 * random.nextInt(2))),
+                            blob, firstType + type, firstProvider + p);
+                    int slotCount = 1 + random.nextInt(slotsPerService);
+                    serviceSlots[id - firstService] = slotCount;
+                    for (int s = 0; s < slotCount; s++) slots.add(id, slot(s));
+                }
+            }
+        }
+        conn.commit();
+        System.out.printf("catalog: %d types, %d services%n", SERVICE_TYPES.length, services);
+    }
+
+    private void pets(Connection conn, int petsPerOwner) throws SQLException {
+        int petId = nextId(conn, "pet", "petid");
+        int dietId = nextId(conn, "diet", "dietid");
+        int activityId = nextId(conn, "activity", "activityid");
+        petStart = new int[owners];
+        petCount = new int[owners];
+        long total = 0;
+        try (Batch pets = new Batch(conn, "INSERT INTO pet (petid, name, breed, description, picture, age, dob, userid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             Batch diets = new Batch(conn, "INSERT INTO diet (dietid, name, amount, description, petid) VALUES (?, ?, ?, ?, ?)");
+             Batch activities = new Batch(conn, "INSERT INTO activity (activityid, name, description, petid) VALUES (?, ?, ?, ?)");
+             Batch schedules = new Batch(conn, "INSERT INTO petschedule (startdate, repeat_option, hour, minute, dietid, activityid) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int o = 0; o < owners; o++) {
+                petStart[o] = petId;
+                petCount[o] = 1 + random.nextInt(2 * petsPerOwner);
+                for (int i = 0; i < petCount[o]; i++, petId++, dietId++, activityId++) {
+                    int age = random.nextInt(15);
+                    pets.add(petId, "pet " + petId, pick(BREEDS), "", blob, age, Date.valueOf(LocalDate.now().minusYears(age).minusDays(random.nextInt(365))), firstOwner + o);
+                    diets.add(dietId, "Hạt khô", (50 + random.nextInt(200)) + "g", "", petId);
+                    activities.add(activityId, "Đi dạo", "", petId);
+                    Date start = Date.valueOf(LocalDate.now().minusDays(random.nextInt(365)));
+                    schedules.add(start, pick(REPEAT_OPTIONS), 6 + random.nextInt(4), 0, dietId, null);
+                    schedules.add(start, pick(REPEAT_OPTIONS), 17 + random.nextInt(3), 30, dietId, null);
+                    schedules.add(start, pick(REPEAT_OPTIONS), 7 + random.nextInt(12), 0, null, activityId);
+                    total++;
+                }
+            }
+        }
+        conn.commit();
+        System.out.printf("pets: %d (with diets, activities and schedules)%n", total);
+    }
+
+    private void bookings(Connection conn, int count, int updatesPerBooking) throws SQLException {
+        int bookId = nextId(conn, "booking", "bookid");
+        Zipf popularService = new Zipf(serviceSlots.length, 1.1, random);
+        Set<Long> taken = new HashSet<>();
+        LocalDate today = LocalDate.now();
+        int written = 0;
+        try (Batch bookings = new Batch(conn, "INSERT INTO booking (bookid, poid, svid, slot, serveDate, payment_method, status) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             Batch pets = new Batch(conn, "INSERT INTO booking_pet (bookid, petid) VALUES (?, ?)");
+             Batch updates = new Batch(conn, "INSERT INTO service_update (bookid, no_update, text, image) VALUES (?, ?, ?, ?)")) {
+            for (int attempt = 0; written < count && attempt < count * 3; attempt++) {
+                int service = popularService.next();
+                int slotIndex = random.nextInt(serviceSlots[service]);
+                int dayOffset = random.nextInt(360) - 300;
+                // one booking per (service, date, slot)
+                if (!taken.add(((long) service << 32) | ((dayOffset + 1000L) << 8) | slotIndex)) continue;
+
+                int owner = random.nextInt(owners);
+                boolean past = dayOffset < 0;
+                bookings.add(bookId, firstOwner + owner, firstService + service, slot(slotIndex),
+                        Date.valueOf(today.plusDays(dayOffset)), random.nextBoolean() ? "cash" : "card", past ? "done" : "pending");
+                pets.add(bookId, petStart[owner] + random.nextInt(petCount[owner]));
+                if (past) {
+                    for (int u = 1; u <= updatesPerBooking; u++) updates.add(bookId, u, "Cập nhật " + u, blob);
+                }
+                bookId++;
+                written++;
+            }
+        }
+        conn.commit();
+        System.out.printf("bookings: %d%n", written);
+    }
+
+    private void notifications(Connection conn, int count) throws SQLException {
+        Zipf heavyUser = new Zipf(owners, 1.2, random);
+        try (Batch rows = new Batch(conn, "INSERT INTO notification (userid, text) VALUES (?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                rows.add(firstOwner + heavyUser.next(), "Thông báo " + i);
+            }
+        }
+        conn.commit();
+        System.out.printf("notifications: %d%n", count);
+    }
+
+    private void tickets(Connection conn, int count) throws SQLException {
+        try (Batch rows = new Batch(conn, "INSERT INTO ticket (subject, description, attachment, status, userid, createtime, managerid, assigntime) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                String status = pick(TICKET_STATUSES);
+                boolean assigned = !status.equals("pending");
+                Timestamp created = Timestamp.valueOf(LocalDateTime.now().minusMinutes(random.nextInt(60 * 24 * 90)));
+                rows.add("Hỗ trợ " + i, "Mô tả sự cố " + i, blob, status, firstOwner + random.nextInt(owners), created,
+                        assigned ? firstManager + random.nextInt(managers) : null, assigned ? created : null);
+            }
+        }
+        conn.commit();
+        System.out.printf("tickets: %d%n", count);
+    }
+
+    private void schedules(Connection conn, int count) throws SQLException {
+        try (Batch rows = new Batch(conn, "INSERT INTO schedule (scheduled_time, tittle, detail, userid) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                Timestamp at = Timestamp.valueOf(LocalDateTime.now().plusMinutes(random.nextInt(60 * 24 * 60) - 60 * 24 * 30).withSecond(0).withNano(0));
+                rows.add(at, "Lịch hẹn " + i, "", firstOwner + random.nextInt(owners));
+            }
+        }
+        conn.commit();
+        System.out.printf("schedules: %d%n", count);
+    }
+
+    private static int nextId(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static Time slot(int index) {
+        return Time.valueOf(String.format("%02d:00:00", 8 + index));
+    }
+
+    private String phone() {
+        return "09" + (10_000_000 + random.nextInt(90_000_000));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Zipf(s) sampler over 0..n-1 using a precomputed CDF
+    static class Zipf {
+        private final double[] cdf;
+        private final Random random;
+
+        Zipf(int n, double s, Random random) {
+            this.random = random;
+            this.cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, s);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) cdf[i] /= sum;
+        }
+
+        int next() {
+            int i = java.util.Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+        }
+    }
+
+    // Accumulates rows into JDBC batches of BATCH_SIZE and commits each flush
+    private static class Batch implements AutoCloseable {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private int pending;
+
+        Batch(Connection conn, String sql) throws SQLException {
+            this.conn = conn;
+            this.stmt = conn.prepareStatement(sql);
+        }
+
+        void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) stmt.setObject(i + 1, values[i]);
+            stmt.addBatch();
+            if (++pending == BATCH_SIZE) flush();
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) return;
+            stmt.executeBatch();
+            conn.commit();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                stmt.close();
+            }
+        }
+    }
+}
@@ -1,11 +1,169 @@
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Database {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/petcare";
-    private static final String DB_USER = "root";
-    private static final String DB_PASS = "1234";
+    // Overridable with -Dpetcare.db.url=... etc. so benchmarks and load tests can target a scratch database
+    private static final String DB_URL = System.getProperty("petcare.db.url",
+            "jdbc:mysql://localhost:3306/petcare?useServerPrepStmts=true&rewriteBatchedStatements=true");
+    private static final String DB_USER = System.getProperty("petcare.db.user", "root");
+    private static final String DB_PASS = System.getProperty("petcare.db.password", "1234");
+
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 20;
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = 5_000;
+    private static final long POOL_IDLE_TIMEOUT_MS = 10 * 60_000;
+    private static final long POOL_VALIDATE_AFTER_IDLE_MS = 1_000;
+    private static final long POOL_LEAK_THRESHOLD_MS = 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 128;
+
+    private static final ConnectionPool pool = new ConnectionPool(DB_URL, DB_USER, DB_PASS,
+            POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS,
+            POOL_VALIDATE_AFTER_IDLE_MS, POOL_LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+
+    static {
+        DatabaseMetrics.registerPool(pool);
+        SlowQueryLog.setExplainSource(() -> DriverManager.getConnection(DB_URL, DB_USER, DB_PASS));
+    }
+
+    // Borrow a pooled connection; closing it returns it to the pool
+    static Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
+    public static int getPoolMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    public static void shutdown() {
+        REMINDERS.stop();
+        NOTIFICATION_WRITER.close();
+        MAILBOX.shutdown();
+        pool.close();
+    }
+
+    // Read-through caches for catalog data. Services and providers are cached without their blobs and
+    // handed out as copies; the other results are shared, so callers must not modify them
+    private static final long CACHE_TTL_MS = 5 * 60_000;
+    private static final ReadCache<String, List<ServiceType>> ALL_SERVICE_TYPES_CACHE = new ReadCache<>("allServiceTypes", 1, CACHE_TTL_MS);
+    private static final ReadCache<Integer, ServiceType> SERVICE_TYPE_CACHE = new ReadCache<>("serviceType", 1_000, CACHE_TTL_MS);
+    private static final ReadCache<Integer, Service> SERVICE_CACHE = new ReadCache<>("service", 10_000, CACHE_TTL_MS);
+    private static final ReadCache<Integer, List<Service>> SERVICES_BY_TYPE_CACHE = new ReadCache<>("servicesByType", 1_000, CACHE_TTL_MS);
+    private static final ReadCache<Integer, List<TimeSlot>> TIMESLOT_CACHE = new ReadCache<>("timeSlotsByService", 10_000, CACHE_TTL_MS);
+    private static final ReadCache<Integer, ServiceProvider> SERVICE_PROVIDER_CACHE = new ReadCache<>("serviceProvider", 10_000, CACHE_TTL_MS);
+    // Free/booked slot bitmaps per service and day, see getFreeSlots/getMonthAvailability
+    private static final SlotAvailability AVAILABILITY = new SlotAvailability(10_000, 12, CACHE_TTL_MS,
+            Database::loadSlotMask, Database::loadBookedMonth);
+    // In-memory views over the service catalog, kept current by the service/provider/type write methods
+    private static final ServiceCatalog CATALOG = new ServiceCatalog(Database::loadCatalog);
+    // Full-text search over services, see searchServices
+    private static final ServiceSearchIndex SEARCH = new ServiceSearchIndex(CATALOG);
+    // Price/duration columns per service type, see getServicesByPricePage/getShortestServices
+    private static final ServicePriceIndex PRICES = new ServicePriceIndex(CATALOG);
+
+    public static List<ReadCache.Stats> getCacheStats() {
+        return List.of(ALL_SERVICE_TYPES_CACHE.getStats(), SERVICE_TYPE_CACHE.getStats(), SERVICE_CACHE.getStats(),
+                SERVICES_BY_TYPE_CACHE.getStats(), TIMESLOT_CACHE.getStats(), SERVICE_PROVIDER_CACHE.getStats(),
+                AVAILABILITY.getStats(), SEARCH.getStats(), PRICES.getStats());
+    }
+
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    // After deletes that cascade to services: every cache and in-memory view derived from them
+    private static void onServicesCascade() {
+        SERVICE_CACHE.invalidateAll();
+        SERVICES_BY_TYPE_CACHE.invalidateAll();
+        TIMESLOT_CACHE.invalidateAll();
+        AVAILABILITY.invalidateAll();
+        CATALOG.invalidate();
+    }
+
+    // A user row was deleted; it cascades to their bookings, services, notifications and tickets
+    // (a deleted manager's tickets lose their managerid)
+    private static void onUserDeleted(int userid) {
+        onServicesCascade();
+        UNREAD.remove(userid);
+        MAILBOX.reset(userid);
+        TICKET_ASSIGNER.invalidate();
+    }
+
+    public static void clearCaches() {
+        ALL_SERVICE_TYPES_CACHE.invalidateAll();
+        SERVICE_TYPE_CACHE.invalidateAll();
+        SERVICE_CACHE.invalidateAll();
+        SERVICES_BY_TYPE_CACHE.invalidateAll();
+        TIMESLOT_CACHE.invalidateAll();
+        SERVICE_PROVIDER_CACHE.invalidateAll();
+        AVAILABILITY.invalidateAll();
+        CATALOG.invalidate();
+    }
+
+    @FunctionalInterface
+    interface RowBinder {
+        void bind(PreparedStatement stmt, int row) throws SQLException;
+    }
+
+    // Insert rows as one JDBC batch (rewritten to multi-row INSERTs by the driver) in a single transaction.
+    // If the batch fails, the rows are retried one by one in the same transaction so only bad rows fail.
+    // Returns whether each row was written.
+    static boolean[] executeBatch(String sql, int rows, RowBinder binder) {
+        boolean[] written = new boolean[rows];
+        if (rows == 0) return written;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < rows; i++) {
+                    binder.bind(stmt, i);
+                    stmt.addBatch();
+                }
+                try {
+                    int[] counts = stmt.executeBatch();
+                    for (int i = 0; i < rows; i++) {
+                        written[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+                    }
+                } catch (BatchUpdateException e) {
+                    conn.rollback();
+                    for (int i = 0; i < rows; i++) {
+                        try {
+                            binder.bind(stmt, i);
+                            written[i] = stmt.executeUpdate() > 0;
+                        } catch (SQLException rowError) {
+                            written[i] = false;
+                        }
+                    }
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            Arrays.fill(written, false);
+        }
+        return written;
+    }
 
     public static class User {
         public int userid;
@@ -57,6 +215,8 @@ public class Database {
         public String description;
         public String address;
         public String website;
+        // Set instead of logo when loaded by a list query
+        public LazyBlob logoBlob;
 
         public ServiceProvider(int id, String businessName, byte[] logo, String phone, String description, String address, String website) {
             this.id = id;
@@ -68,6 +228,11 @@ public class Database {
             this.website = website;
         }
 
+        public byte[] getLogo() {
+            if (logo == null && logoBlob != null) logo = logoBlob.get();
+            return logo;
+        }
+
         @Override
         public String toString() {
             return id + ", " + businessName + ", " + phone + ", " + address + ", " + website;
@@ -86,6 +251,21 @@ public class Database {
             return "Manager ID: " + id;
         }
     }
+
+    public static class ManagerLoad {
+        public int managerid;
+        public int solvingTickets;
+
+        public ManagerLoad(int managerid, int solvingTickets) {
+            this.managerid = managerid;
+            this.solvingTickets = solvingTickets;
+        }
+
+        @Override
+        public String toString() {
+            return "Manager ID: " + managerid + ", solving: " + solvingTickets;
+        }
+    }
 ////////////////////////////USER///////////////////////////////////////////////////////////////////////////////
     public static boolean addUser(String name, String email, String password, String gender, String role) {
         String insertUserSQL = "INSERT INTO user (name, email, password, gender, role) VALUES (?, ?, ?, ?, ?)";
@@ -98,7 +278,8 @@ public class Database {
 
         if (insertRoleSQL == null) return false;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS)) {
+        int addedUserid = -1;
+        try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
 
             try (PreparedStatement userStmt = conn.prepareStatement(insertUserSQL, Statement.RETURN_GENERATED_KEYS)) {
@@ -119,21 +300,26 @@ public class Database {
                     }
 
                     conn.commit();
-                    return true;
+                    addedUserid = userid;
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        if (addedUserid < 0) return false;
+        if (role.equalsIgnoreCase("manager")) TICKET_ASSIGNER.managerAdded(addedUserid);
+        return true;
     }
 
     public static boolean deleteUser(int userid) {
         String deleteSQL = "DELETE FROM user WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(deleteSQL)) {
             stmt.setInt(1, userid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_PROVIDER_CACHE.invalidate(userid);
+            if (changed) onUserDeleted(userid);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -142,7 +328,7 @@ public class Database {
 
     public static User getUserById(int userid) {
         String sql = "SELECT * FROM user WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userid);
             ResultSet rs = stmt.executeQuery();
@@ -166,7 +352,7 @@ public class Database {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM user";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
@@ -188,7 +374,7 @@ public class Database {
 
     public static boolean updateUser(int userid, String name, String email, String password, String gender, String role) {
         String updateSQL = "UPDATE user SET name = ?, email = ?, password = ?, gender = ?, role = ? WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(updateSQL)) {
             stmt.setString(1, name);
             stmt.setString(2, email);
@@ -207,7 +393,7 @@ public class Database {
     //Get list manager by id
     public static Manager getManagerById(int id) {
         String sql = "SELECT * FROM manager WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
@@ -224,7 +410,7 @@ public class Database {
         List<Manager> list = new ArrayList<>();
         String sql = "SELECT * FROM manager";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
@@ -248,6 +434,9 @@ public class Database {
         public Timestamp createtime;
         public Integer managerid;
         public Timestamp assigntime;
+        // Set instead of attachment/response when loaded by a list query
+        public LazyBlob attachmentBlob;
+        public LazyBlob responseBlob;
 
         public Ticket(int ticketid, String subject, String description, byte[] attachment, byte[] response,
                       String status, int userid, Timestamp createtime, Integer managerid, Timestamp assigntime) {
@@ -263,15 +452,47 @@ public class Database {
             this.assigntime = assigntime;
         }
 
+        public byte[] getAttachment() {
+            if (attachment == null && attachmentBlob != null) attachment = attachmentBlob.get();
+            return attachment;
+        }
+
+        public byte[] getResponse() {
+            if (response == null && responseBlob != null) response = responseBlob.get();
+            return response;
+        }
+
         @Override
         public String toString() {
             return ticketid + ", " + subject + ", status: " + status + ", user: " + userid + ", manager: " + managerid;
         }
     }
+    // List queries leave attachment/respone in the table; they are loaded on first access
+    private static final String TICKET_SUMMARY_COLUMNS = "ticketid, subject, description, status, userid, createtime, managerid, assigntime";
+
+    private static Ticket mapTicketSummary(ResultSet rs) throws SQLException {
+        int ticketid = rs.getInt("ticketid");
+        Ticket t = new Ticket(
+                ticketid,
+                rs.getString("subject"),
+                rs.getString("description"),
+                null,
+                null,
+                rs.getString("status"),
+                rs.getInt("userid"),
+                rs.getTimestamp("createtime"),
+                rs.getObject("managerid") != null ? rs.getInt("managerid") : null,
+                rs.getTimestamp("assigntime")
+        );
+        t.attachmentBlob = new LazyBlob("SELECT attachment FROM ticket WHERE ticketid = ?", ticketid);
+        t.responseBlob = new LazyBlob("SELECT respone FROM ticket WHERE ticketid = ?", ticketid);
+        return t;
+    }
     // Create a new ticket(by user)
     public static int createTicket(int userid, String subject, String description, byte[] attachment) {
         String sql = "INSERT INTO ticket (subject, description, attachment, status, userid) VALUES (?, ?, ?, 'pending', ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        int ticketid = -1;
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, subject);
@@ -281,45 +502,142 @@ public class Database {
             stmt.executeUpdate();
 
             ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+            if (rs.next()) ticketid = rs.getInt(1);
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return -1;
+        // After the insert's connection is back in the pool: assigning borrows its own
+        if (ticketid > 0 && AUTO_ASSIGN_TICKETS) autoAssignTicket(ticketid);
+        return ticketid;
     }
+
+    // With -Dpetcare.tickets.autoAssign=true new tickets go straight to the least-loaded manager. Off by
+    // default: an assigned ticket can no longer be edited with updateTicket.
+    private static final boolean AUTO_ASSIGN_TICKETS = Boolean.getBoolean("petcare.tickets.autoAssign");
+    private static final String ASSIGN_TICKET_SQL = "UPDATE ticket SET managerid = ?, assigntime = NOW(), status = 'solving' WHERE ticketid = ?";
+    // Auto-assignment only takes tickets nobody has picked up; answered, closed or already assigned tickets are left alone
+    private static final String AUTO_ASSIGN_TICKET_SQL = ASSIGN_TICKET_SQL + " AND status = 'pending' AND managerid IS NULL";
+
+    // Solving-ticket count per manager, see autoAssignTicket
+    private static final TicketAssigner TICKET_ASSIGNER = new TicketAssigner(Database::loadTicketAssignments);
+
     // Assign a ticket to a manager(admin/auto)
     public static boolean assignTicket(int ticketid, int managerid) {
-        String sql = "UPDATE ticket SET managerid = ?, assigntime = NOW(), status = 'solving' WHERE ticketid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        boolean changed = false;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ASSIGN_TICKET_SQL)) {
             stmt.setInt(1, managerid);
             stmt.setInt(2, ticketid);
-            return stmt.executeUpdate() > 0;
+            changed = stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        // Assigner hooks run after the connection is back in the pool, see TicketAssigner
+        if (changed) TICKET_ASSIGNER.assigned(ticketid, managerid);
+        return changed;
+    }
+    // Assign a pending, unassigned ticket to the manager with the fewest solving tickets; returns the managerid or -1
+    public static int autoAssignTicket(int ticketid) {
+        int managerid = TICKET_ASSIGNER.reserve(ticketid);
+        if (managerid < 0) return -1;
+        boolean changed = false;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(AUTO_ASSIGN_TICKET_SQL)) {
+            stmt.setInt(1, managerid);
+            stmt.setInt(2, ticketid);
+            changed = stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        if (changed) return managerid;
+        TICKET_ASSIGNER.release(ticketid, managerid);
+        return -1;
+    }
+    // Assign up to limit pending, unassigned tickets (oldest first) in one batch; returns how many were assigned
+    public static int assignPendingTickets(int limit) {
+        List<Integer> pending = new ArrayList<>();
+        String sql = "SELECT ticketid FROM ticket WHERE status = 'pending' AND managerid IS NULL ORDER BY ticketid LIMIT ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) pending.add(rs.getInt(1));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+
+        List<Integer> tickets = new ArrayList<>();
+        List<Integer> chosen = new ArrayList<>();
+        for (int ticketid : pending) {
+            int managerid = TICKET_ASSIGNER.reserve(ticketid);
+            if (managerid < 0) continue;
+            tickets.add(ticketid);
+            chosen.add(managerid);
+        }
+        boolean[] assigned = executeBatch(AUTO_ASSIGN_TICKET_SQL, tickets.size(), (stmt, i) -> {
+            stmt.setInt(1, chosen.get(i));
+            stmt.setInt(2, tickets.get(i));
+        });
+        int count = 0;
+        for (int i = 0; i < assigned.length; i++) {
+            if (assigned[i]) {
+                count++;
+            } else {
+                // Picked up, answered or closed since the SELECT
+                TICKET_ASSIGNER.release(tickets.get(i), chosen.get(i));
+            }
+        }
+        return count;
+    }
+    // Managers with their number of solving tickets, least loaded first
+    public static List<ManagerLoad> getManagerLoads() {
+        List<ManagerLoad> list = new ArrayList<>();
+        for (int[] load : TICKET_ASSIGNER.loads()) list.add(new ManagerLoad(load[0], load[1]));
+        return list;
+    }
+    // Recount manager loads from the ticket table, e.g. after editing it directly in MySQL
+    public static boolean rebuildTicketAssignments() {
+        return TICKET_ASSIGNER.rebuild();
+    }
+
+    private static TicketAssigner.Snapshot loadTicketAssignments() {
+        TicketAssigner.Snapshot snapshot = new TicketAssigner.Snapshot();
+        String managerSQL = "SELECT id FROM manager";
+        String ticketSQL = "SELECT ticketid, managerid FROM ticket WHERE status = 'solving' AND managerid IS NOT NULL";
+        try (Connection conn = getConnection();
+             PreparedStatement managerStmt = conn.prepareStatement(managerSQL);
+             PreparedStatement ticketStmt = conn.prepareStatement(ticketSQL)) {
+            ResultSet rs = managerStmt.executeQuery();
+            while (rs.next()) snapshot.managers.add(rs.getInt(1));
+            rs = ticketStmt.executeQuery();
+            while (rs.next()) snapshot.openTickets.put(rs.getInt(1), rs.getInt(2));
+            return snapshot;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
     }
     // Update ticket response and status(by manager)
     public static boolean updateTicketResponse(int ticketid, byte[] response, String status) {
         String sql = "UPDATE ticket SET respone = ?, status = ? WHERE ticketid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        boolean changed = false;
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setBytes(1, response);
             stmt.setString(2, status);
             stmt.setInt(3, ticketid);
-            return stmt.executeUpdate() > 0;
+            changed = stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        if (changed && !"solving".equals(status)) TICKET_ASSIGNER.closed(ticketid);
+        return changed;
     }
     // Get ticket by ID
     public static Ticket getTicketById(int ticketid) {
         String sql = "SELECT * FROM ticket WHERE ticketid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, ticketid);
             ResultSet rs = stmt.executeQuery();
@@ -345,23 +663,12 @@ public class Database {
     // Get all tickets
     public static List<Ticket> getAllTickets() {
         List<Ticket> list = new ArrayList<>();
-        String sql = "SELECT * FROM ticket";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                list.add(new Ticket(
-                        rs.getInt("ticketid"),
-                        rs.getString("subject"),
-                        rs.getString("description"),
-                        rs.getBytes("attachment"),
-                        rs.getBytes("respone"),
-                        rs.getString("status"),
-                        rs.getInt("userid"),
-                        rs.getTimestamp("createtime"),
-                        rs.getObject("managerid") != null ? rs.getInt("managerid") : null,
-                        rs.getTimestamp("assigntime")
-                ));
+                list.add(mapTicketSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -371,24 +678,13 @@ public class Database {
     // Get tickets by user ID
     public static List<Ticket> getTicketsByUserId(int userid) {
         List<Ticket> list = new ArrayList<>();
-        String sql = "SELECT * FROM ticket WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket WHERE userid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new Ticket(
-                        rs.getInt("ticketid"),
-                        rs.getString("subject"),
-                        rs.getString("description"),
-                        rs.getBytes("attachment"),
-                        rs.getBytes("respone"),
-                        rs.getString("status"),
-                        rs.getInt("userid"),
-                        rs.getTimestamp("createtime"),
-                        rs.getObject("managerid") != null ? rs.getInt("managerid") : null,
-                        rs.getTimestamp("assigntime")
-                ));
+                list.add(mapTicketSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -398,24 +694,13 @@ public class Database {
     // Get tickets by manager ID
     public static List<Ticket> getTicketsByManagerId(int managerid) {
         List<Ticket> list = new ArrayList<>();
-        String sql = "SELECT * FROM ticket WHERE managerid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket WHERE managerid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, managerid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new Ticket(
-                        rs.getInt("ticketid"),
-                        rs.getString("subject"),
-                        rs.getString("description"),
-                        rs.getBytes("attachment"),
-                        rs.getBytes("respone"),
-                        rs.getString("status"),
-                        rs.getInt("userid"),
-                        rs.getTimestamp("createtime"),
-                        rs.getObject("managerid") != null ? rs.getInt("managerid") : null,
-                        rs.getTimestamp("assigntime")
-                ));
+                list.add(mapTicketSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -425,19 +710,21 @@ public class Database {
     // Delete a ticket(by user/admin)
     public static boolean deleteTicket(int ticketid) {
         String sql = "DELETE FROM ticket WHERE ticketid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        boolean changed = false;
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, ticketid);
-            return stmt.executeUpdate() > 0;
+            changed = stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        if (changed) TICKET_ASSIGNER.closed(ticketid);
+        return changed;
     }
     // Update a ticket(by user)
     public static boolean updateTicket(int ticketid, String subject, String description, byte[] attachment) {
         String sql = "UPDATE ticket SET subject = ?, description = ?, attachment = ? WHERE ticketid = ? AND managerid IS NULL";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, subject);
             stmt.setString(2, description);
@@ -453,7 +740,7 @@ public class Database {
 ///////////////////////////////////PET OWNER///////////////////////////////////////////////////////////////////////////
     public static boolean updatePetOwner(int userid, String phone, String city, String address) {
         String sql = "UPDATE petowner SET phone = ?, city = ?, address = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, phone);
             stmt.setString(2, city);
@@ -468,7 +755,7 @@ public class Database {
 
     public static PetOwner getPetOwnerById(int id) {
         String sql = "SELECT * FROM petowner WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
@@ -490,7 +777,7 @@ public class Database {
         List<PetOwner> owners = new ArrayList<>();
         String sql = "SELECT * FROM petowner";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
@@ -518,6 +805,8 @@ public class Database {
         public int age;
         public Date dob;
         public int userid;
+        // Set instead of picture when loaded by a list query
+        public LazyBlob pictureBlob;
 
         public Pet(int petid, String name, String breed, String description, byte[] picture, int age, Date dob, int userid) {
             this.petid = petid;
@@ -529,6 +818,11 @@ public class Database {
             this.dob = dob;
             this.userid = userid;
         }
+
+        public byte[] getPicture() {
+            if (picture == null && pictureBlob != null) picture = pictureBlob.get();
+            return picture;
+        }
     }
 
     public static class Diet {
@@ -564,7 +858,7 @@ public class Database {
     // -------- PET FUNCTIONS --------
     public static int addPet(String name, String breed, String description, byte[] picture, int age, Date dob, int userid) {
         String sql = "INSERT INTO pet (name, breed, description, picture, age, dob, userid) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, name);
             stmt.setString(2, breed);
@@ -584,7 +878,7 @@ public class Database {
 
     public static boolean updatePet(int petid, String name, String breed, String description, byte[] picture, int age, Date dob, int userid) {
         String sql = "UPDATE pet SET name = ?, breed = ?, description = ?, picture = ?, age = ?, dob = ?, userid = ? WHERE petid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, name);
             stmt.setString(2, breed);
@@ -603,7 +897,7 @@ public class Database {
 
     public static boolean deletePet(int petid) {
         String sql = "DELETE FROM pet WHERE petid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, petid);
             return stmt.executeUpdate() > 0;
@@ -615,22 +909,24 @@ public class Database {
 
     public static List<Pet> getPetsByUserId(int userid) {
         List<Pet> list = new ArrayList<>();
-        String sql = "SELECT * FROM pet WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT petid, name, breed, description, age, dob, userid FROM pet WHERE userid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new Pet(
+                Pet pet = new Pet(
                         rs.getInt("petid"),
                         rs.getString("name"),
                         rs.getString("breed"),
                         rs.getString("description"),
-                        rs.getBytes("picture"),
+                        null,
                         rs.getInt("age"),
                         rs.getDate("dob"),
                         rs.getInt("userid")
-                ));
+                );
+                pet.pictureBlob = new LazyBlob("SELECT picture FROM pet WHERE petid = ?", pet.petid);
+                list.add(pet);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -641,7 +937,7 @@ public class Database {
     // -------- DIET FUNCTIONS --------
     public static int addDiet(String name, String amount, String description, int petid) {
         String sql = "INSERT INTO diet (name, amount, description, petid) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, name);
             stmt.setString(2, amount);
@@ -659,7 +955,7 @@ public class Database {
     public static List<Diet> getDietsByPetId(int petid) {
         List<Diet> list = new ArrayList<>();
         String sql = "SELECT * FROM diet WHERE petid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, petid);
             ResultSet rs = stmt.executeQuery();
@@ -680,7 +976,7 @@ public class Database {
 
     public static boolean deleteDiet(int dietid) {
         String sql = "DELETE FROM diet WHERE dietid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, dietid);
             return stmt.executeUpdate() > 0;
@@ -693,7 +989,7 @@ public class Database {
     // -------- ACTIVITY FUNCTIONS --------
     public static int addActivity(String name, String description, int petid) {
         String sql = "INSERT INTO activity (name, description, petid) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, name);
             stmt.setString(2, description);
@@ -710,7 +1006,7 @@ public class Database {
     public static List<Activity> getActivitiesByPetId(int petid) {
         List<Activity> list = new ArrayList<>();
         String sql = "SELECT * FROM activity WHERE petid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, petid);
             ResultSet rs = stmt.executeQuery();
@@ -730,7 +1026,7 @@ public class Database {
 
     public static boolean deleteActivity(int activityid) {
         String sql = "DELETE FROM activity WHERE activityid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, activityid);
             return stmt.executeUpdate() > 0;
@@ -763,7 +1059,7 @@ public class Database {
 
     public static int addPetSchedule(Date startdate, String repeatOption, int hour, int minute, Integer dietid, Integer activityid) {
         String sql = "INSERT INTO petschedule (startdate, repeat_option, hour, minute, dietid, activityid) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setDate(1, startdate);
             stmt.setString(2, repeatOption);
@@ -784,7 +1080,7 @@ public class Database {
     public static List<PetSchedule> getPetSchedulesByDietId(int dietid) {
         List<PetSchedule> list = new ArrayList<>();
         String sql = "SELECT * FROM petschedule WHERE dietid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, dietid);
             ResultSet rs = stmt.executeQuery();
@@ -809,7 +1105,7 @@ public class Database {
     public static List<PetSchedule> getPetSchedulesByActivityId(int activityid) {
         List<PetSchedule> list = new ArrayList<>();
         String sql = "SELECT * FROM petschedule WHERE activityid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, activityid);
             ResultSet rs = stmt.executeQuery();
@@ -833,7 +1129,7 @@ public class Database {
 // Delete pet schedule
     public static boolean deletePetSchedule(int petscheduleid) {
         String sql = "DELETE FROM petschedule WHERE petscheduleid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, petscheduleid);
             return stmt.executeUpdate() > 0;
@@ -846,7 +1142,7 @@ public class Database {
 // Update pet schedule
     public static boolean updatePetSchedule(int petscheduleid, Date startdate, String repeatOption, int hour, int minute, Integer dietid, Integer activityid) {
         String sql = "UPDATE petschedule SET startdate = ?, repeat_option = ?, hour = ?, minute = ?, dietid = ?, activityid = ? WHERE petscheduleid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setDate(1, startdate);
             stmt.setString(2, repeatOption);
@@ -862,6 +1158,157 @@ public class Database {
     return false;
 }
 
+    // Every schedule of every pet of an owner, expanded into occurrences from the start of 'from' to the end
+    // of 'to' and ordered by time. Schedules are linked to a pet through their diet or activity.
+    public static List<PetScheduleExpander.Occurrence> getPetPlan(int userid, Date from, Date to) {
+        List<PetScheduleExpander.Rule> rules = new ArrayList<>();
+        String sql = "SELECT ps.*, d.petid FROM petschedule ps JOIN diet d ON d.dietid = ps.dietid "
+                + "JOIN pet p ON p.petid = d.petid WHERE p.userid = ? AND ps.startdate <= ? "
+                + "UNION ALL SELECT ps.*, a.petid FROM petschedule ps JOIN activity a ON a.activityid = ps.activityid "
+                + "JOIN pet p ON p.petid = a.petid WHERE p.userid = ? AND ps.startdate <= ? AND ps.dietid IS NULL";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userid);
+            stmt.setDate(2, to);
+            stmt.setInt(3, userid);
+            stmt.setDate(4, to);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                PetSchedule schedule = new PetSchedule(
+                        rs.getInt("petscheduleid"),
+                        rs.getDate("startdate"),
+                        rs.getString("repeat_option"),
+                        rs.getInt("hour"),
+                        rs.getInt("minute"),
+                        (Integer) rs.getObject("dietid"),
+                        (Integer) rs.getObject("activityid")
+                );
+                rules.add(new PetScheduleExpander.Rule(schedule, rs.getInt("petid")));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        return PetScheduleExpander.mergeToList(rules, from.toLocalDate().atStartOfDay(),
+                to.toLocalDate().plusDays(1).atStartOfDay());
+    }
+
+    // -------- PET DASHBOARD --------
+    // One pet with its diets, activities and the schedules of those diets and activities
+    public static class PetDetail {
+        public final Pet pet;
+        public final List<Diet> diets = new ArrayList<>();
+        public final List<Activity> activities = new ArrayList<>();
+        public final List<PetSchedule> schedules = new ArrayList<>();
+
+        public PetDetail(Pet pet) {
+            this.pet = pet;
+        }
+
+        public List<PetSchedule> getSchedulesOfDiet(int dietid) {
+            List<PetSchedule> list = new ArrayList<>();
+            for (PetSchedule s : schedules) if (s.dietid != null && s.dietid == dietid) list.add(s);
+            return list;
+        }
+
+        public List<PetSchedule> getSchedulesOfActivity(int activityid) {
+            List<PetSchedule> list = new ArrayList<>();
+            for (PetSchedule s : schedules) if (s.activityid != null && s.activityid == activityid) list.add(s);
+            return list;
+        }
+    }
+
+    // Every pet of an owner with its diets, activities and schedules, in at most four queries on one
+    // connection whatever the number of pets (instead of getPetsByUserId, then getDietsByPetId/getActivitiesByPetId per
+    // pet and getPetSchedulesBy* per diet and activity). The queries share one transaction so they see the
+    // same snapshot. Pictures are loaded lazily as in getPetsByUserId.
+    public static List<PetDetail> getPetDashboard(int userid) {
+        String petSql = "SELECT petid, name, breed, description, age, dob, userid FROM pet WHERE userid = ? ORDER BY petid";
+        String dietSql = "SELECT d.* FROM diet d JOIN pet p ON p.petid = d.petid WHERE p.userid = ? ORDER BY d.dietid";
+        String activitySql = "SELECT a.* FROM activity a JOIN pet p ON p.petid = a.petid WHERE p.userid = ? ORDER BY a.activityid";
+        String scheduleSql = "SELECT ps.* FROM petschedule ps JOIN diet d ON d.dietid = ps.dietid "
+                + "JOIN pet p ON p.petid = d.petid WHERE p.userid = ? "
+                + "UNION ALL SELECT ps.* FROM petschedule ps JOIN activity a ON a.activityid = ps.activityid "
+                + "JOIN pet p ON p.petid = a.petid WHERE p.userid = ? AND ps.dietid IS NULL "
+                + "ORDER BY petscheduleid";
+        Map<Integer, PetDetail> byPet = new LinkedHashMap<>();
+        Map<Integer, PetDetail> byDiet = new HashMap<>();
+        Map<Integer, PetDetail> byActivity = new HashMap<>();
+        try (Connection conn = getConnection()) {
+            // One transaction, so every query reads the same snapshot
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(petSql)) {
+                stmt.setInt(1, userid);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    Pet pet = new Pet(
+                            rs.getInt("petid"),
+                            rs.getString("name"),
+                            rs.getString("breed"),
+                            rs.getString("description"),
+                            null,
+                            rs.getInt("age"),
+                            rs.getDate("dob"),
+                            rs.getInt("userid")
+                    );
+                    pet.pictureBlob = new LazyBlob("SELECT picture FROM pet WHERE petid = ?", pet.petid);
+                    byPet.put(pet.petid, new PetDetail(pet));
+                }
+            }
+            if (!byPet.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(dietSql)) {
+                    stmt.setInt(1, userid);
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        PetDetail detail = byPet.get(rs.getInt("petid"));
+                        if (detail == null) continue;
+                        Diet diet = new Diet(rs.getInt("dietid"), rs.getString("name"), rs.getString("amount"),
+                                rs.getString("description"), detail.pet.petid);
+                        detail.diets.add(diet);
+                        byDiet.put(diet.dietid, detail);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(activitySql)) {
+                    stmt.setInt(1, userid);
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        PetDetail detail = byPet.get(rs.getInt("petid"));
+                        if (detail == null) continue;
+                        Activity activity = new Activity(rs.getInt("activityid"), rs.getString("name"),
+                                rs.getString("description"), detail.pet.petid);
+                        detail.activities.add(activity);
+                        byActivity.put(activity.activityid, detail);
+                    }
+                }
+            }
+            if (!byDiet.isEmpty() || !byActivity.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(scheduleSql)) {
+                    stmt.setInt(1, userid);
+                    stmt.setInt(2, userid);
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        PetSchedule schedule = new PetSchedule(
+                                rs.getInt("petscheduleid"),
+                                rs.getDate("startdate"),
+                                rs.getString("repeat_option"),
+                                rs.getInt("hour"),
+                                rs.getInt("minute"),
+                                (Integer) rs.getObject("dietid"),
+                                (Integer) rs.getObject("activityid")
+                        );
+                        PetDetail detail = schedule.dietid != null ? byDiet.get(schedule.dietid) : byActivity.get(schedule.activityid);
+                        if (detail != null) detail.schedules.add(schedule);
+                    }
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(byPet.values());
+    }
+
 //------------------Booking-----------------
     public static class Booking {
         public int bookid;
@@ -885,28 +1332,76 @@ public class Database {
         }
     }
 
+    // Inserts only if the (svid, serveDate, slot) is still free; uq_booking_slot backs this up across processes
+    private static final String BOOKING_INSERT_SQL = "INSERT INTO booking (poid, svid, slot, serveDate, payment_method, status) "
+            + "SELECT ?, ?, ?, ?, ?, ? FROM DUAL "
+            + "WHERE NOT EXISTS (SELECT 1 FROM booking WHERE svid = ? AND serveDate = ? AND slot = ?)";
+
+    // Contenders for the same slot queue on one stripe in-process, so they fail fast on the NOT EXISTS
+    // check instead of piling up on InnoDB locks; different slots almost never share a stripe
+    private static final int BOOKING_LOCK_STRIPES = 256;
+    private static final ReentrantLock[] BOOKING_LOCKS = new ReentrantLock[BOOKING_LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < BOOKING_LOCK_STRIPES; i++) BOOKING_LOCKS[i] = new ReentrantLock();
+    }
+
+    private static ReentrantLock bookingLock(int svid, Date serveDate, Time slot) {
+        int h = (svid * 31 + (int) serveDate.toLocalDate().toEpochDay()) * 31 + minuteOf(slot);
+        return BOOKING_LOCKS[((h * 0x9E3779B9) >>> 16) & (BOOKING_LOCK_STRIPES - 1)];
+    }
+
+    // Duplicate key on uq_booking_slot: another process booked the slot between our check and insert
+    private static boolean isSlotConflict(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                && e.getMessage() != null && e.getMessage().contains("uq_booking_slot");
+    }
+
+    private static void bindBooking(PreparedStatement stmt, int poid, int svid, Time slot, Date serveDate,
+                                    String paymentMethod, String status) throws SQLException {
+        stmt.setInt(1, poid);
+        stmt.setInt(2, svid);
+        stmt.setTime(3, slot);
+        stmt.setDate(4, serveDate);
+        stmt.setString(5, paymentMethod);
+        stmt.setString(6, status);
+        stmt.setInt(7, svid);
+        stmt.setDate(8, serveDate);
+        stmt.setTime(9, slot);
+    }
+
+    // Returns the new bookid, or -1 if the slot is already booked or the insert failed
     public static int addBooking(int poid, int svid, Time slot, Date serveDate, String paymentMethod, String status) {
-        String sql = "INSERT INTO booking (poid, svid, slot, serveDate, payment_method, status) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, poid);
-            stmt.setInt(2, svid);
-            stmt.setTime(3, slot);
-            stmt.setDate(4, serveDate);
-            stmt.setString(5, paymentMethod);
-            stmt.setString(6, status);
-            stmt.executeUpdate();
+        ReentrantLock lock = bookingLock(svid, serveDate, slot);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BOOKING_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindBooking(stmt, poid, svid, slot, serveDate, paymentMethod, status);
+            // Locked only around the check-and-insert, never while waiting for a pooled connection
+            boolean inserted;
+            lock.lock();
+            try {
+                inserted = stmt.executeUpdate() > 0;
+            } finally {
+                lock.unlock();
+            }
+            // Either way the slot is now taken
+            AVAILABILITY.booked(svid, serveDate.toLocalDate(), minuteOf(slot));
+            if (!inserted) return -1;
             ResultSet rs = stmt.getGeneratedKeys();
             if (rs.next()) return rs.getInt(1);
         } catch (SQLException e) {
-            e.printStackTrace();
+            if (isSlotConflict(e)) {
+                AVAILABILITY.booked(svid, serveDate.toLocalDate(), minuteOf(slot));
+            } else {
+                e.printStackTrace();
+            }
         }
         return -1;
     }
 
     public static boolean addBookingPet(int bookid, int petid) {
         String sql = "INSERT INTO booking_pet (bookid, petid) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             stmt.setInt(2, petid);
@@ -917,10 +1412,74 @@ public class Database {
         return false;
     }
 
+    // Link several pets to a booking in one batch; returns whether each pet was linked
+    public static boolean[] addBookingPets(int bookid, Collection<Integer> petids) {
+        Integer[] pets = petids.toArray(new Integer[0]);
+        String sql = "INSERT INTO booking_pet (bookid, petid) VALUES (?, ?)";
+        return executeBatch(sql, pets.length, (stmt, i) -> {
+            stmt.setInt(1, bookid);
+            stmt.setInt(2, pets[i]);
+        });
+    }
+
+    // Create a booking and link its pets atomically; returns the new bookid, or -1 if the slot is already
+    // booked or nothing was written
+    public static int createBookingWithPets(int poid, int svid, Time slot, Date serveDate, String paymentMethod, String status,
+                                            Collection<Integer> petids) {
+        String petSQL = "INSERT INTO booking_pet (bookid, petid) VALUES (?, ?)";
+        ReentrantLock lock = bookingLock(svid, serveDate, slot);
+        try (Connection conn = getConnection();
+             PreparedStatement bookingStmt = conn.prepareStatement(BOOKING_INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement petStmt = conn.prepareStatement(petSQL)) {
+            conn.setAutoCommit(false);
+            bindBooking(bookingStmt, poid, svid, slot, serveDate, paymentMethod, status);
+            // Taken once the connection is in hand and held until commit or rollback, so contenders
+            // either see the booking or fail fast
+            lock.lock();
+            try {
+                if (bookingStmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    AVAILABILITY.booked(svid, serveDate.toLocalDate(), minuteOf(slot));
+                    return -1;
+                }
+
+                ResultSet rs = bookingStmt.getGeneratedKeys();
+                if (!rs.next()) {
+                    conn.rollback();
+                    return -1;
+                }
+                int bookid = rs.getInt(1);
+
+                for (int petid : petids) {
+                    petStmt.setInt(1, bookid);
+                    petStmt.setInt(2, petid);
+                    petStmt.addBatch();
+                }
+                petStmt.executeBatch();
+
+                conn.commit();
+                AVAILABILITY.booked(svid, serveDate.toLocalDate(), minuteOf(slot));
+                return bookid;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+        } catch (SQLException e) {
+            if (isSlotConflict(e)) {
+                AVAILABILITY.booked(svid, serveDate.toLocalDate(), minuteOf(slot));
+            } else {
+                e.printStackTrace();
+            }
+        }
+        return -1;
+    }
+
     public static List<Booking> getBookingsByPetOwner(int poid) {
         List<Booking> list = new ArrayList<>();
         String sql = "SELECT * FROM booking WHERE poid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, poid);
             ResultSet rs = stmt.executeQuery();
@@ -943,28 +1502,103 @@ public class Database {
     }
 
     public static boolean deleteBooking(int bookid) {
+        String selectSQL = "SELECT svid, slot, serveDate FROM booking WHERE bookid = ?";
         String sql = "DELETE FROM booking WHERE bookid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
+             PreparedStatement select = conn.prepareStatement(selectSQL);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            // Read the slot first so the availability index can release it
+            select.setInt(1, bookid);
+            ResultSet rs = select.executeQuery();
+            if (!rs.next()) return false;
+            int svid = rs.getInt("svid");
+            Time slot = rs.getTime("slot");
+            Date serveDate = rs.getDate("serveDate");
+
             stmt.setInt(1, bookid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) AVAILABILITY.released(svid, serveDate.toLocalDate(), minuteOf(slot));
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+// bookings of a service on one day, in slot order (provider side)
+    public static List<Booking> getBookingsByServiceId(int svid, Date serveDate) {
+        List<Booking> list = new ArrayList<>();
+        String sql = "SELECT * FROM booking WHERE svid = ? AND serveDate = ? ORDER BY slot";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, svid);
+            stmt.setDate(2, serveDate);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(new Booking(
+                        rs.getInt("bookid"),
+                        rs.getInt("poid"),
+                        rs.getInt("svid"),
+                        rs.getTime("slot"),
+                        rs.getTimestamp("book_timestamp"),
+                        rs.getDate("servedate"),
+                        rs.getString("payment_method"),
+                        rs.getString("status")
+                ));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+// bookings of all services of a provider between two dates (inclusive), by date and slot
+    public static List<Booking> getBookingsByProviderId(int providerid, Date from, Date to) {
+        List<Booking> list = new ArrayList<>();
+        String sql = "SELECT b.* FROM booking b JOIN service s ON s.serviceid = b.svid "
+                + "WHERE s.providerid = ? AND b.serveDate BETWEEN ? AND ? ORDER BY b.serveDate, b.slot";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, providerid);
+            stmt.setDate(2, from);
+            stmt.setDate(3, to);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(new Booking(
+                        rs.getInt("bookid"),
+                        rs.getInt("poid"),
+                        rs.getInt("svid"),
+                        rs.getTime("slot"),
+                        rs.getTimestamp("book_timestamp"),
+                        rs.getDate("servedate"),
+                        rs.getString("payment_method"),
+                        rs.getString("status")
+                ));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
 //----------------------Sevice--------------
     public static class ServiceReport {
         public int bookid;
         public String text;
         public byte[] image;
+        // Set instead of image when loaded by getBookingDetail*
+        public LazyBlob imageBlob;
 
         public ServiceReport(int bookid, String text, byte[] image) {
             this.bookid = bookid;
             this.text = text;
             this.image = image;
         }
+
+        public byte[] getImage() {
+            if (image == null && imageBlob != null) image = imageBlob.get();
+            return image;
+        }
     }
 
     public static class ServiceReview {
@@ -984,6 +1618,8 @@ public class Database {
         public int noUpdate;
         public String text;
         public byte[] image;
+        // Set instead of image when loaded by a list query
+        public LazyBlob imageBlob;
 
         public ServiceUpdate(int bookid, int noUpdate, String text, byte[] image) {
             this.bookid = bookid;
@@ -991,11 +1627,16 @@ public class Database {
             this.text = text;
             this.image = image;
         }
+
+        public byte[] getImage() {
+            if (image == null && imageBlob != null) image = imageBlob.get();
+            return image;
+        }
     }
 
     public static boolean addServiceReport(int bookid, String text, byte[] image) {
         String sql = "INSERT INTO service_report (bookid, text, image) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             stmt.setString(2, text);
@@ -1009,7 +1650,7 @@ public class Database {
 
     public static boolean addServiceReview(int bookid, int start, String comment) {
         String sql = "INSERT INTO service_review (bookid, start, comment) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             stmt.setInt(2, start);
@@ -1023,7 +1664,7 @@ public class Database {
 
     public static boolean addServiceUpdate(int bookid, int noUpdate, String text, byte[] image) {
         String sql = "INSERT INTO service_update (bookid, no_update, text, image) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             stmt.setInt(2, noUpdate);
@@ -1038,18 +1679,20 @@ public class Database {
 
     public static List<ServiceUpdate> getServiceUpdatesByBookId(int bookid) {
         List<ServiceUpdate> list = new ArrayList<>();
-        String sql = "SELECT * FROM service_update WHERE bookid = ? ORDER BY no_update";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT no_update, text FROM service_update WHERE bookid = ? ORDER BY no_update";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new ServiceUpdate(
+                ServiceUpdate update = new ServiceUpdate(
                         bookid,
                         rs.getInt("no_update"),
                         rs.getString("text"),
-                        rs.getBytes("image")
-                ));
+                        null
+                );
+                update.imageBlob = new LazyBlob("SELECT image FROM service_update WHERE bookid = ? AND no_update = ?", bookid, update.noUpdate);
+                list.add(update);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1059,7 +1702,7 @@ public class Database {
 
     public static ServiceReport getServiceReport(int bookid) {
         String sql = "SELECT * FROM service_report WHERE bookid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             ResultSet rs = stmt.executeQuery();
@@ -1074,7 +1717,7 @@ public class Database {
 
     public static ServiceReview getServiceReview(int bookid) {
         String sql = "SELECT * FROM service_review WHERE bookid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookid);
             ResultSet rs = stmt.executeQuery();
@@ -1086,10 +1729,161 @@ public class Database {
         }
         return null;
     }
+
+    // -------- BOOKING DETAIL --------
+    // A booking with everything its detail view shows; report and review are null when not written yet
+    public static class BookingDetail {
+        public final Booking booking;
+        public Service service;
+        public ServiceProvider provider;
+        public final List<Integer> petids = new ArrayList<>();
+        public final List<ServiceUpdate> updates = new ArrayList<>();
+        public ServiceReport report;
+        public ServiceReview review;
+
+        public BookingDetail(Booking booking) {
+            this.booking = booking;
+        }
+    }
+
+    // Wrapped around a booking subquery aliased b: one row per service update (or one row without updates),
+    // pets folded into a list of ids. Blobs are left in the tables and loaded lazily.
+    private static final String BOOKING_DETAIL_SELECT = "SELECT b.bookid, b.poid, b.svid, b.slot, b.book_timestamp, b.serveDate, "
+            + "b.payment_method, b.status, "
+            + "s.name AS service_name, s.price, s.description AS service_description, s.duration, s.typeid, s.providerid, "
+            + "sp.bussiness_name, sp.phone, sp.description AS provider_description, sp.address, sp.website, "
+            + "(SELECT GROUP_CONCAT(bp.petid ORDER BY bp.petid) FROM booking_pet bp WHERE bp.bookid = b.bookid) AS petids, "
+            + "r.bookid AS report_bookid, r.text AS report_text, "
+            + "rv.bookid AS review_bookid, rv.start, rv.comment, "
+            + "u.no_update, u.text AS update_text "
+            + "FROM (";
+    private static final String BOOKING_DETAIL_JOINS = ") b "
+            + "JOIN service s ON s.serviceid = b.svid "
+            + "JOIN serviceprovider sp ON sp.id = s.providerid "
+            + "LEFT JOIN service_report r ON r.bookid = b.bookid "
+            + "LEFT JOIN service_review rv ON rv.bookid = b.bookid "
+            + "LEFT JOIN service_update u ON u.bookid = b.bookid "
+            + "ORDER BY b.bookid DESC, u.no_update";
+
+    // Booking, service, provider, pets, updates, report and review in one query
+    // (instead of seven calls, each on its own connection)
+    public static BookingDetail getBookingDetail(int bookid) {
+        List<BookingDetail> details = loadBookingDetails("SELECT * FROM booking WHERE bookid = ?", stmt -> stmt.setInt(1, bookid));
+        return details == null || details.isEmpty() ? null : details.get(0);
+    }
+
+    // Details of several bookings in one query, in the order of bookids; missing bookings are left out
+    public static List<BookingDetail> getBookingDetails(List<Integer> bookids) {
+        List<BookingDetail> list = new ArrayList<>();
+        if (bookids.isEmpty()) return list;
+        String sql = "SELECT * FROM booking WHERE bookid IN (" + String.join(", ", Collections.nCopies(bookids.size(), "?")) + ")";
+        List<BookingDetail> details = loadBookingDetails(sql, stmt -> {
+            for (int i = 0; i < bookids.size(); i++) stmt.setInt(i + 1, bookids.get(i));
+        });
+        if (details == null) return list;
+        Map<Integer, BookingDetail> byId = new HashMap<>();
+        for (BookingDetail d : details) byId.put(d.booking.bookid, d);
+        for (int bookid : bookids) {
+            BookingDetail d = byId.get(bookid);
+            if (d != null) list.add(d);
+        }
+        return list;
+    }
+
+    // A pet owner's booking history with details, newest first, one query per page.
+    // Tokens are interchangeable with getBookingsByPetOwnerPage.
+    public static Page<BookingDetail> getBookingDetailsByPetOwnerPage(int poid, String token, int limit) {
+        long before = token == null ? Long.MAX_VALUE : decodeToken("b", token, 1)[0];
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<BookingDetail> items = loadBookingDetails("SELECT * FROM booking WHERE poid = ? AND bookid < ? ORDER BY bookid DESC LIMIT ?", stmt -> {
+            stmt.setInt(1, poid);
+            stmt.setLong(2, before);
+            stmt.setInt(3, size + 1);
+        });
+        if (items == null) return new Page<>(new ArrayList<>(), null);
+        if (items.size() <= size) return new Page<>(items, null);
+        items.remove(size);
+        return new Page<>(items, encodeToken("b", items.get(size - 1).booking.bookid));
+    }
+
+    // Newest booking first; null on failure
+    private static List<BookingDetail> loadBookingDetails(String bookingSql, StatementBinder binder) {
+        Map<Integer, BookingDetail> details = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BOOKING_DETAIL_SELECT + bookingSql + BOOKING_DETAIL_JOINS)) {
+            binder.bind(stmt);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                int bookid = rs.getInt("bookid");
+                BookingDetail d = details.get(bookid);
+                if (d == null) {
+                    d = mapBookingDetail(rs);
+                    details.put(bookid, d);
+                }
+                int noUpdate = rs.getInt("no_update");
+                if (!rs.wasNull()) {
+                    ServiceUpdate update = new ServiceUpdate(bookid, noUpdate, rs.getString("update_text"), null);
+                    update.imageBlob = new LazyBlob("SELECT image FROM service_update WHERE bookid = ? AND no_update = ?", bookid, noUpdate);
+                    d.updates.add(update);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new ArrayList<>(details.values());
+    }
+
+    private static BookingDetail mapBookingDetail(ResultSet rs) throws SQLException {
+        int bookid = rs.getInt("bookid");
+        BookingDetail d = new BookingDetail(new Booking(
+                bookid,
+                rs.getInt("poid"),
+                rs.getInt("svid"),
+                rs.getTime("slot"),
+                rs.getTimestamp("book_timestamp"),
+                rs.getDate("serveDate"),
+                rs.getString("payment_method"),
+                rs.getString("status")
+        ));
+        d.service = new Service(
+                d.booking.svid,
+                rs.getString("service_name"),
+                rs.getInt("price"),
+                rs.getString("service_description"),
+                rs.getTime("duration"),
+                null,
+                rs.getInt("typeid"),
+                rs.getInt("providerid")
+        );
+        d.service.licenseBlob = new LazyBlob("SELECT license FROM service WHERE serviceid = ?", d.service.serviceid);
+        d.provider = new ServiceProvider(
+                d.service.providerid,
+                rs.getString("bussiness_name"),
+                null,
+                rs.getString("phone"),
+                rs.getString("provider_description"),
+                rs.getString("address"),
+                rs.getString("website")
+        );
+        d.provider.logoBlob = new LazyBlob("SELECT logo FROM serviceprovider WHERE id = ?", d.provider.id);
+        String petids = rs.getString("petids");
+        if (petids != null) {
+            for (String petid : petids.split(",")) d.petids.add(Integer.parseInt(petid));
+        }
+        rs.getInt("report_bookid");
+        if (!rs.wasNull()) {
+            d.report = new ServiceReport(bookid, rs.getString("report_text"), null);
+            d.report.imageBlob = new LazyBlob("SELECT image FROM service_report WHERE bookid = ?", bookid);
+        }
+        rs.getInt("review_bookid");
+        if (!rs.wasNull()) d.review = new ServiceReview(bookid, rs.getInt("start"), rs.getString("comment"));
+        return d;
+    }
 ///////////////////////////////////SERVICE PROVIDER////////////////////////////////////////////////////////////////////
     public static boolean updateServiceProvider(int userid, String businessName, byte[] logo, String phone, String description, String address, String website) {
         String sql = "UPDATE serviceprovider SET bussiness_name = ?, logo = ?, phone = ?, description = ?, address = ?, website = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, businessName);
             stmt.setBytes(2, logo);
@@ -1098,54 +1892,69 @@ public class Database {
             stmt.setString(5, address);
             stmt.setString(6, website);
             stmt.setInt(7, userid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_PROVIDER_CACHE.invalidate(userid);
+            if (changed) CATALOG.providerChanged(userid, businessName);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Logo loaded on first getLogo()
     public static ServiceProvider getServiceProviderById(int id) {
-        String sql = "SELECT * FROM serviceprovider WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        ServiceProvider cached = SERVICE_PROVIDER_CACHE.get(id, Database::loadServiceProviderById);
+        return cached == null ? null : copyOf(cached);
+    }
+
+    private static ServiceProvider loadServiceProviderById(int id) {
+        String sql = "SELECT " + SERVICE_PROVIDER_SUMMARY_COLUMNS + " FROM serviceprovider WHERE id = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new ServiceProvider(
-                        rs.getInt("id"),
-                        rs.getString("bussiness_name"),
-                        rs.getBytes("logo"),
-                        rs.getString("phone"),
-                        rs.getString("description"),
-                        rs.getString("address"),
-                        rs.getString("website")
-                );
-            }
+            if (rs.next()) return mapServiceProviderSummary(rs);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    private static final String SERVICE_PROVIDER_SUMMARY_COLUMNS = "id, bussiness_name, phone, description, address, website";
+
+    private static ServiceProvider mapServiceProviderSummary(ResultSet rs) throws SQLException {
+        ServiceProvider sp = new ServiceProvider(
+                rs.getInt("id"),
+                rs.getString("bussiness_name"),
+                null,
+                rs.getString("phone"),
+                rs.getString("description"),
+                rs.getString("address"),
+                rs.getString("website")
+        );
+        sp.logoBlob = new LazyBlob("SELECT logo FROM serviceprovider WHERE id = ?", sp.id);
+        return sp;
+    }
+
+    // Fresh blob handle, so loading the logo does not grow the cached entry
+    private static ServiceProvider copyOf(ServiceProvider cached) {
+        ServiceProvider sp = new ServiceProvider(cached.id, cached.businessName, null, cached.phone,
+                cached.description, cached.address, cached.website);
+        sp.logoBlob = new LazyBlob("SELECT logo FROM serviceprovider WHERE id = ?", sp.id);
+        return sp;
+    }
+
     public static List<ServiceProvider> getAllServiceProviders() {
         List<ServiceProvider> list = new ArrayList<>();
-        String sql = "SELECT * FROM serviceprovider";
+        String sql = "SELECT " + SERVICE_PROVIDER_SUMMARY_COLUMNS + " FROM serviceprovider";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                list.add(new ServiceProvider(
-                        rs.getInt("id"),
-                        rs.getString("bussiness_name"),
-                        rs.getBytes("logo"),
-                        rs.getString("phone"),
-                        rs.getString("description"),
-                        rs.getString("address"),
-                        rs.getString("website")
-                ));
+                list.add(mapServiceProviderSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1177,6 +1986,8 @@ public class Database {
         public byte[] license;
         public int typeid;
         public int providerid;
+        // Set instead of license when loaded by a list query
+        public LazyBlob licenseBlob;
 
         public Service(int serviceid, String name, int price, String description, Time duration, byte[] license, int typeid, int providerid) {
             this.serviceid = serviceid;
@@ -1189,6 +2000,11 @@ public class Database {
             this.providerid = providerid;
         }
 
+        public byte[] getLicense() {
+            if (license == null && licenseBlob != null) license = licenseBlob.get();
+            return license;
+        }
+
         @Override
         public String toString() {
             return serviceid + ": " + name + ", $" + price + ", " + description;
@@ -1213,12 +2029,17 @@ public class Database {
 //Create by admin
     public static int addServiceType(String type) {
         String sql = "INSERT INTO servicetype (type) VALUES (?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, type);
             stmt.executeUpdate();
+            ALL_SERVICE_TYPES_CACHE.invalidateAll();
             ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) return rs.getInt(1);
+            if (rs.next()) {
+                int typeid = rs.getInt(1);
+                CATALOG.typeChanged(typeid, type);
+                return typeid;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1227,11 +2048,15 @@ public class Database {
 //update by admin
     public static boolean updateServiceType(int typeid, String newType) {
         String sql = "UPDATE servicetype SET type = ? WHERE typeid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, newType);
             stmt.setInt(2, typeid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_TYPE_CACHE.invalidate(typeid);
+            ALL_SERVICE_TYPES_CACHE.invalidateAll();
+            if (changed) CATALOG.typeChanged(typeid, newType);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1240,10 +2065,15 @@ public class Database {
 //delete by admin
     public static boolean deleteServiceType(int typeid) {
         String sql = "DELETE FROM servicetype WHERE typeid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, typeid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_TYPE_CACHE.invalidate(typeid);
+            ALL_SERVICE_TYPES_CACHE.invalidateAll();
+            // Cascades to the services of this type
+            if (changed) onServicesCascade();
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1251,9 +2081,15 @@ public class Database {
     }
 //list all service types
     public static List<ServiceType> getAllServiceTypes() {
+        List<ServiceType> list = ALL_SERVICE_TYPES_CACHE.get("all", k -> unmodifiable(loadAllServiceTypes()));
+        return list == null ? new ArrayList<>() : list;
+    }
+
+    // These loaders return null on failure so ReadCache does not keep the error
+    private static List<ServiceType> loadAllServiceTypes() {
         List<ServiceType> list = new ArrayList<>();
         String sql = "SELECT * FROM servicetype";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -1261,13 +2097,18 @@ public class Database {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return list;
     }
 //Get service type by ID
     public static ServiceType getServiceTypeById(int typeid) {
+        return SERVICE_TYPE_CACHE.get(typeid, Database::loadServiceTypeById);
+    }
+
+    private static ServiceType loadServiceTypeById(int typeid) {
         String sql = "SELECT * FROM servicetype WHERE typeid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, typeid);
             ResultSet rs = stmt.executeQuery();
@@ -1280,10 +2121,46 @@ public class Database {
         return null;
     }
 //------------Service Functions--------------
+// List queries leave license in the table; it is loaded on first access
+    private static final String SERVICE_SUMMARY_COLUMNS = "serviceid, name, price, description, duration, typeid, providerid";
+
+    private static Service mapServiceSummary(ResultSet rs) throws SQLException {
+        Service s = new Service(
+                rs.getInt("serviceid"),
+                rs.getString("name"),
+                rs.getInt("price"),
+                rs.getString("description"),
+                rs.getTime("duration"),
+                null,
+                rs.getInt("typeid"),
+                rs.getInt("providerid")
+        );
+        s.licenseBlob = new LazyBlob("SELECT license FROM service WHERE serviceid = ?", s.serviceid);
+        return s;
+    }
+
+    private static Service serviceSummary(int serviceid, String name, int price, String description, Time duration, int typeid, int providerid) {
+        Service s = new Service(serviceid, name, price, description, duration, null, typeid, providerid);
+        s.licenseBlob = new LazyBlob("SELECT license FROM service WHERE serviceid = ?", serviceid);
+        return s;
+    }
+
+    // Fresh blob handle, so loading the license does not grow the cached entry
+    private static Service copyOf(Service cached) {
+        Time duration = cached.duration == null ? null : new Time(cached.duration.getTime());
+        return serviceSummary(cached.serviceid, cached.name, cached.price, cached.description, duration,
+                cached.typeid, cached.providerid);
+    }
+
+    private static List<Service> copyOf(List<Service> cached) {
+        List<Service> list = new ArrayList<>(cached.size());
+        for (Service s : cached) list.add(copyOf(s));
+        return list;
+    }
 //add a new service by service provider
     public static int addService(String name, int price, String description, Time duration, byte[] license, int typeid, int providerid) {
         String sql = "INSERT INTO service (name, price, description, duration, license, typeid, providerid) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, name);
             stmt.setInt(2, price);
@@ -1293,8 +2170,14 @@ public class Database {
             stmt.setInt(6, typeid);
             stmt.setInt(7, providerid);
             stmt.executeUpdate();
+            SERVICES_BY_TYPE_CACHE.invalidate(typeid);
             ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) return rs.getInt(1);
+            if (rs.next()) {
+                int serviceid = rs.getInt(1);
+                Service summary = serviceSummary(serviceid, name, price, description, duration, typeid, providerid);
+                CATALOG.serviceChanged(summary);
+                return serviceid;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1303,7 +2186,7 @@ public class Database {
 //update a service by service provider
     public static boolean updateService(int serviceid, String name, int price, String description, Time duration, byte[] license, int typeid, int providerid) {
         String sql = "UPDATE service SET name = ?, price = ?, description = ?, duration = ?, license = ?, typeid = ?, providerid = ? WHERE serviceid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, name);
             stmt.setInt(2, price);
@@ -1313,7 +2196,14 @@ public class Database {
             stmt.setInt(6, typeid);
             stmt.setInt(7, providerid);
             stmt.setInt(8, serviceid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_CACHE.invalidate(serviceid);
+            SERVICES_BY_TYPE_CACHE.invalidateAll();
+            if (changed) {
+                Service summary = serviceSummary(serviceid, name, price, description, duration, typeid, providerid);
+                CATALOG.serviceChanged(summary);
+            }
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1322,34 +2212,34 @@ public class Database {
 // delete a service by service provider
     public static boolean deleteService(int serviceid) {
         String sql = "DELETE FROM service WHERE serviceid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, serviceid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            SERVICE_CACHE.invalidate(serviceid);
+            SERVICES_BY_TYPE_CACHE.invalidateAll();
+            TIMESLOT_CACHE.invalidate(serviceid);
+            AVAILABILITY.invalidate(serviceid);
+            if (changed) CATALOG.serviceRemoved(serviceid);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
-//get a service by ID
+//get a service by ID (license loaded on first getLicense())
     public static Service getServiceById(int serviceid) {
-        String sql = "SELECT * FROM service WHERE serviceid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        Service cached = SERVICE_CACHE.get(serviceid, Database::loadServiceById);
+        return cached == null ? null : copyOf(cached);
+    }
+
+    private static Service loadServiceById(int serviceid) {
+        String sql = "SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service WHERE serviceid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, serviceid);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Service(
-                        rs.getInt("serviceid"),
-                        rs.getString("name"),
-                        rs.getInt("price"),
-                        rs.getString("description"),
-                        rs.getTime("duration"),
-                        rs.getBytes("license"),
-                        rs.getInt("typeid"),
-                        rs.getInt("providerid")
-                );
-            }
+            if (rs.next()) return mapServiceSummary(rs);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1358,21 +2248,12 @@ public class Database {
 //list all services
     public static List<Service> getAllServices() {
         List<Service> list = new ArrayList<>();
-        String sql = "SELECT * FROM service";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                list.add(new Service(
-                        rs.getInt("serviceid"),
-                        rs.getString("name"),
-                        rs.getInt("price"),
-                        rs.getString("description"),
-                        rs.getTime("duration"),
-                        rs.getBytes("license"),
-                        rs.getInt("typeid"),
-                        rs.getInt("providerid")
-                ));
+                list.add(mapServiceSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1382,22 +2263,13 @@ public class Database {
 //get services by provider ID
     public static List<Service> getServicesByProviderId(int providerid) {
         List<Service> list = new ArrayList<>();
-        String sql = "SELECT * FROM service WHERE providerid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service WHERE providerid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, providerid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new Service(
-                        rs.getInt("serviceid"),
-                        rs.getString("name"),
-                        rs.getInt("price"),
-                        rs.getString("description"),
-                        rs.getTime("duration"),
-                        rs.getBytes("license"),
-                        rs.getInt("typeid"),
-                        rs.getInt("providerid")
-                ));
+                list.add(mapServiceSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1406,51 +2278,135 @@ public class Database {
     }
 //get services by type ID
     public static List<Service> getServicesByTypeId(int typeid) {
+        List<Service> list = SERVICES_BY_TYPE_CACHE.get(typeid, k -> unmodifiable(loadServicesByTypeId(k)));
+        return list == null ? new ArrayList<>() : copyOf(list);
+    }
+
+    private static List<Service> loadServicesByTypeId(int typeid) {
         List<Service> list = new ArrayList<>();
-        String sql = "SELECT * FROM service WHERE typeid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        String sql = "SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service WHERE typeid = ?";
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, typeid);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                list.add(new Service(
-                        rs.getInt("serviceid"),
-                        rs.getString("name"),
-                        rs.getInt("price"),
-                        rs.getString("description"),
-                        rs.getTime("duration"),
-                        rs.getBytes("license"),
-                        rs.getInt("typeid"),
-                        rs.getInt("providerid")
-                ));
+                list.add(mapServiceSummary(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return list;
     }
+//search services by name, description, type and provider name
+    // Ranked, typeahead-friendly (the last word may be incomplete) and accent-insensitive: "spa meo" finds
+    // "Spa mèo". Served from memory.
+    public static List<Service> searchServices(String query, int limit) {
+        return copyOf(SEARCH.search(query, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    public static boolean rebuildSearchIndex() {
+        return CATALOG.rebuild();
+    }
+
+//list services of a type by price, with optional price range and maximum duration
+    // Cheapest first (ties by serviceid). Price bounds are inclusive; pass null as maxDuration for no limit.
+    // Served from memory like searchServices.
+    public static Page<Service> getServicesByPricePage(int typeid, int minPrice, int maxPrice, Time maxDuration,
+                                                       String token, int limit) {
+        long[] after = token == null ? new long[]{Long.MIN_VALUE, Long.MIN_VALUE} : decodeToken("sp", token, 2);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Service> items = copyOf(PRICES.byPrice(typeid, minPrice, maxPrice, maxSeconds(maxDuration), after[0], after[1], size + 1));
+        if (items.size() <= size) return new Page<>(items, null);
+        items.remove(size);
+        Service last = items.get(size - 1);
+        return new Page<>(items, encodeToken("sp", last.price, last.serviceid));
+    }
+
+    public static List<Service> getCheapestServices(int typeid, int minPrice, int maxPrice, Time maxDuration, int limit) {
+        return copyOf(PRICES.byPrice(typeid, minPrice, maxPrice, maxSeconds(maxDuration), Long.MIN_VALUE, Long.MIN_VALUE,
+                Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // Shortest first, then cheapest; services without a duration come last
+    public static List<Service> getShortestServices(int typeid, int minPrice, int maxPrice, Time maxDuration, int limit) {
+        return copyOf(PRICES.shortest(typeid, minPrice, maxPrice, maxSeconds(maxDuration), Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    private static int maxSeconds(Time maxDuration) {
+        return maxDuration == null ? ServicePriceIndex.NO_DURATION : maxDuration.toLocalTime().toSecondOfDay();
+    }
+
+    // Every service (summary columns) with the type and provider names; null on failure
+    static class Catalog {
+        final List<Service> services = new ArrayList<>();
+        final Map<Integer, String> typeNames = new HashMap<>();
+        final Map<Integer, String> providerNames = new HashMap<>();
+    }
+
+    private static Catalog loadCatalog() {
+        Catalog catalog = new Catalog();
+        try (Connection conn = getConnection();
+             PreparedStatement types = conn.prepareStatement("SELECT typeid, type FROM servicetype");
+             PreparedStatement providers = conn.prepareStatement("SELECT id, bussiness_name FROM serviceprovider");
+             PreparedStatement services = conn.prepareStatement("SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service")) {
+            // One snapshot for all three
+            conn.setAutoCommit(false);
+            ResultSet rs = types.executeQuery();
+            while (rs.next()) catalog.typeNames.put(rs.getInt("typeid"), rs.getString("type"));
+            rs = providers.executeQuery();
+            while (rs.next()) catalog.providerNames.put(rs.getInt("id"), rs.getString("bussiness_name"));
+            rs = services.executeQuery();
+            while (rs.next()) catalog.services.add(mapServiceSummary(rs));
+            conn.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return catalog;
+    }
 //---------------Time Slot Functions-----------------
 //add a new time slot for a service by service provider
     public static boolean addTimeSlot(int serviceid, Time slot) {
         String sql = "INSERT INTO timeslot (serviceid, slot) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, serviceid);
             stmt.setTime(2, slot);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            TIMESLOT_CACHE.invalidate(serviceid);
+            if (changed) AVAILABILITY.slotAdded(serviceid, minuteOf(slot));
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
+//add several time slots for a service in one batch; returns whether each slot was added
+    public static boolean[] addTimeSlots(int serviceid, Collection<Time> slots) {
+        Time[] times = slots.toArray(new Time[0]);
+        String sql = "INSERT INTO timeslot (serviceid, slot) VALUES (?, ?)";
+        boolean[] added = executeBatch(sql, times.length, (stmt, i) -> {
+            stmt.setInt(1, serviceid);
+            stmt.setTime(2, times[i]);
+        });
+        TIMESLOT_CACHE.invalidate(serviceid);
+        for (int i = 0; i < times.length; i++) {
+            if (added[i]) AVAILABILITY.slotAdded(serviceid, minuteOf(times[i]));
+        }
+        return added;
+    }
 //delete a time slot for a service by service provider
     public static boolean deleteTimeSlot(int serviceid, Time slot) {
         String sql = "DELETE FROM timeslot WHERE serviceid = ? AND slot = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, serviceid);
             stmt.setTime(2, slot);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            TIMESLOT_CACHE.invalidate(serviceid);
+            if (changed) AVAILABILITY.slotRemoved(serviceid, minuteOf(slot));
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1458,9 +2414,14 @@ public class Database {
     }
 // get all time slots for a service
     public static List<TimeSlot> getTimeSlotsByServiceId(int serviceid) {
+        List<TimeSlot> list = TIMESLOT_CACHE.get(serviceid, k -> unmodifiable(loadTimeSlotsByServiceId(k)));
+        return list == null ? new ArrayList<>() : list;
+    }
+
+    private static List<TimeSlot> loadTimeSlotsByServiceId(int serviceid) {
         List<TimeSlot> list = new ArrayList<>();
         String sql = "SELECT * FROM timeslot WHERE serviceid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, serviceid);
             ResultSet rs = stmt.executeQuery();
@@ -1469,14 +2430,89 @@ public class Database {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return list;
     }
+//---------------Availability-----------------
+// free time slots of a service on a date, in time order
+    public static List<Time> getFreeSlots(int serviceid, Date serveDate) {
+        BitSet free = AVAILABILITY.freeDay(serviceid, serveDate.toLocalDate());
+        return free == null ? new ArrayList<>() : toTimes(free);
+    }
+
+    public static boolean isSlotFree(int serviceid, Time slot, Date serveDate) {
+        BitSet free = AVAILABILITY.freeDay(serviceid, serveDate.toLocalDate());
+        return free != null && free.get(minuteOf(slot));
+    }
+
+// month view: free slots for every day of the month, in date order
+    public static Map<Date, List<Time>> getMonthAvailability(int serviceid, int year, int month) {
+        YearMonth ym = YearMonth.of(year, month);
+        Map<Date, List<Time>> view = new LinkedHashMap<>();
+        BitSet[] days = AVAILABILITY.freeMonth(serviceid, ym);
+        if (days == null) return view;
+        for (int d = 0; d < days.length; d++) {
+            view.put(Date.valueOf(ym.atDay(d + 1)), toTimes(days[d]));
+        }
+        return view;
+    }
+
+    // Slots are indexed by minute of the day
+    private static int minuteOf(Time slot) {
+        return slot.toLocalTime().toSecondOfDay() / 60;
+    }
+
+    private static List<Time> toTimes(BitSet minutes) {
+        List<Time> list = new ArrayList<>(minutes.cardinality());
+        for (int m = minutes.nextSetBit(0); m >= 0; m = minutes.nextSetBit(m + 1)) {
+            list.add(Time.valueOf(LocalTime.ofSecondOfDay(m * 60L)));
+        }
+        return list;
+    }
+
+    private static BitSet loadSlotMask(int serviceid) {
+        String sql = "SELECT slot FROM timeslot WHERE serviceid = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, serviceid);
+            ResultSet rs = stmt.executeQuery();
+            BitSet slots = new BitSet(SlotAvailability.MINUTES_PER_DAY);
+            while (rs.next()) slots.set(minuteOf(rs.getTime("slot")));
+            return slots;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private static BitSet[] loadBookedMonth(int serviceid, YearMonth month) {
+        String sql = "SELECT slot, serveDate FROM booking WHERE svid = ? AND serveDate BETWEEN ? AND ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, serviceid);
+            stmt.setDate(2, Date.valueOf(month.atDay(1)));
+            stmt.setDate(3, Date.valueOf(month.atEndOfMonth()));
+            ResultSet rs = stmt.executeQuery();
+            BitSet[] days = new BitSet[month.lengthOfMonth()];
+            while (rs.next()) {
+                int d = rs.getDate("serveDate").toLocalDate().getDayOfMonth() - 1;
+                if (days[d] == null) days[d] = new BitSet(SlotAvailability.MINUTES_PER_DAY);
+                days[d].set(minuteOf(rs.getTime("slot")));
+            }
+            return days;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 /////////////////////////////////////Notifications/////////////////////////////////////////
     public static class Notification {
         public int notiid;
         public String text;
         public int userid;
+        public boolean isRead;
+        public Timestamp createdAt;
 
         @Override
         public String toString() {
@@ -1486,7 +2522,7 @@ public class Database {
 
     public static int addNotification(int userid, String text) {
         String sql = "INSERT INTO notification (userid, text) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, userid);
@@ -1496,10 +2532,17 @@ public class Database {
             if (affectedRows == 0) {
                 return -1; 
             }
+            UNREAD.add(userid, 1);
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1); 
+                    Notification n = new Notification();
+                    n.notiid = generatedKeys.getInt(1);
+                    n.userid = userid;
+                    n.text = text;
+                    n.createdAt = new Timestamp(System.currentTimeMillis());
+                    MAILBOX.publish(n);
+                    return n.notiid;
                 }
             }
         } catch (SQLException e) {
@@ -1508,21 +2551,69 @@ public class Database {
         return -1; 
     }
 
+    // Send the same text to several users in one batch; returns whether each user was notified
+    public static boolean[] addNotifications(Collection<Integer> userids, String text) {
+        Integer[] users = userids.toArray(new Integer[0]);
+        String sql = "INSERT INTO notification (userid, text) VALUES (?, ?)";
+        boolean[] sent = executeBatch(sql, users.length, (stmt, i) -> {
+            stmt.setInt(1, users[i]);
+            stmt.setString(2, text);
+        });
+        for (int i = 0; i < users.length; i++) {
+            if (sent[i]) {
+                UNREAD.add(users[i], 1);
+                MAILBOX.publishUnknown(users[i]);
+            }
+        }
+        return sent;
+    }
+
+    // Unread counts per user, see getUnreadNotificationCount
+    private static final UnreadCounters UNREAD = new UnreadCounters(Database::loadUnreadCounts);
+
+    // Per-user mailboxes for waitForNotifications/subscribeNotifications
+    private static final NotificationMailbox MAILBOX = new NotificationMailbox(
+            Integer.getInteger("petcare.mailbox.size", 64),
+            Long.getLong("petcare.mailbox.idleMs", 10 * 60_000L),
+            Long.getLong("petcare.mailbox.refreshMs", 5_000L),
+            (userid, afterNotiid) -> loadNotificationsSince(userid, afterNotiid, Database.MAX_PAGE_SIZE));
+
+    // Group-commit sink for postNotification, see NotificationWriter
+    private static final NotificationWriter NOTIFICATION_WRITER = new NotificationWriter(
+            Integer.getInteger("petcare.notify.queue", 10_000),
+            Integer.getInteger("petcare.notify.batch", 500),
+            Long.getLong("petcare.notify.windowMs", 10),
+            userid -> {
+                UNREAD.add(userid, 1);
+                MAILBOX.publishUnknown(userid);
+            });
+
+    // Queue a notification to be written asynchronously in a batch; returns false if the queue is full.
+    // Use addNotification when the notiid is needed.
+    public static boolean postNotification(int userid, String text) {
+        return NOTIFICATION_WRITER.post(userid, text);
+    }
+
+    // Wait until every notification posted so far has been written
+    public static boolean flushNotifications(long timeoutMillis) {
+        return NOTIFICATION_WRITER.flush(timeoutMillis);
+    }
+
+    public static NotificationWriter.Stats getNotificationWriterStats() {
+        return NOTIFICATION_WRITER.getStats();
+    }
+
     public static List<Notification> getNotificationsByUserId(int userid) {
         List<Notification> notifications = new ArrayList<>();
         String sql = "SELECT * FROM notification WHERE userid = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, userid);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Notification n = new Notification();
-                    n.notiid = rs.getInt("notiid");
-                    n.userid = rs.getInt("userid");
-                    n.text = rs.getString("text");
-                    notifications.add(n);
+                    notifications.add(mapNotification(rs));
                 }
             }
         } catch (SQLException e) {
@@ -1534,7 +2625,7 @@ public class Database {
     public static List<TimeSlot> getAllTimeSlots() {
         List<TimeSlot> list = new ArrayList<>();
         String sql = "SELECT * FROM timeslot";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -1547,13 +2638,24 @@ public class Database {
     }
 
     public static boolean deleteNotificationByNotiId(int notiid) {
+        String selectSQL = "SELECT userid, is_read FROM notification WHERE notiid = ?";
         String sql = "DELETE FROM notification WHERE notiid = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
+             PreparedStatement select = conn.prepareStatement(selectSQL);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
+            // Read the owner first so an unread notification can be taken off the counter
+            select.setInt(1, notiid);
+            ResultSet rs = select.executeQuery();
+            if (!rs.next()) return false;
+            int userid = rs.getInt("userid");
+            boolean isRead = rs.getBoolean("is_read");
+
             stmt.setInt(1, notiid);
             int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0 && !isRead) UNREAD.add(userid, -1);
+            if (affectedRows > 0) MAILBOX.reset(userid);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1563,10 +2665,12 @@ public class Database {
 
     public static boolean deleteNotificationsByUserId(int userid) {
         String sql = "DELETE FROM notification WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userid);
             int rowsAffected = stmt.executeUpdate();
+            UNREAD.remove(userid);
+            MAILBOX.reset(userid);
             return rowsAffected > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1574,15 +2678,127 @@ public class Database {
         }
     }
 
+    private static Notification mapNotification(ResultSet rs) throws SQLException {
+        Notification n = new Notification();
+        n.notiid = rs.getInt("notiid");
+        n.userid = rs.getInt("userid");
+        n.text = rs.getString("text");
+        n.isRead = rs.getBoolean("is_read");
+        n.createdAt = rs.getTimestamp("created_at");
+        return n;
+    }
+
+    // Notifications newer than afterNotiid (0 for all), oldest first; poll with the last notiid seen
+    public static List<Notification> getNotificationsSince(int userid, int afterNotiid, int limit) {
+        List<Notification> notifications = loadNotificationsSince(userid, afterNotiid, limit);
+        return notifications == null ? new ArrayList<>() : notifications;
+    }
+
+    private static List<Notification> loadNotificationsSince(int userid, int afterNotiid, int limit) {
+        List<Notification> notifications = new ArrayList<>();
+        String sql = "SELECT * FROM notification WHERE userid = ? AND notiid > ? ORDER BY notiid LIMIT ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userid);
+            stmt.setInt(2, afterNotiid);
+            stmt.setInt(3, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                notifications.add(mapNotification(rs));
+            }
+            return notifications;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Long-poll: notifications newer than afterNotiid, waiting up to timeoutMillis for one to be added.
+    // Waiters are woken in-process by the add methods, so an idle wait costs no queries.
+    public static List<Notification> waitForNotifications(int userid, int afterNotiid, long timeoutMillis) throws InterruptedException {
+        return MAILBOX.poll(userid, afterNotiid, timeoutMillis);
+    }
+
+    // Push each batch of new notifications (after afterNotiid) to listener until the subscription is closed
+    public static NotificationMailbox.Subscription subscribeNotifications(int userid, int afterNotiid,
+                                                                          Consumer<List<Notification>> listener) {
+        return MAILBOX.subscribe(userid, afterNotiid, listener);
+    }
+
+    // Served from memory; the counters are loaded from the table on first use
+    public static int getUnreadNotificationCount(int userid) {
+        return UNREAD.get(userid);
+    }
+
+    // Mark all of a user's notifications up to and including upToNotiid as read; returns how many changed
+    public static int markNotificationsRead(int userid, int upToNotiid) {
+        String sql = "UPDATE notification SET is_read = TRUE WHERE userid = ? AND notiid <= ? AND is_read = FALSE";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userid);
+            stmt.setInt(2, upToNotiid);
+            int changed = stmt.executeUpdate();
+            UNREAD.add(userid, -changed);
+            if (changed > 0) MAILBOX.reset(userid);
+            return changed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // Mark the given notifications of a user as read in one statement; returns how many changed
+    public static int markNotificationsRead(int userid, Collection<Integer> notiids) {
+        if (notiids.isEmpty()) return 0;
+        String placeholders = String.join(", ", Collections.nCopies(notiids.size(), "?"));
+        String sql = "UPDATE notification SET is_read = TRUE WHERE userid = ? AND is_read = FALSE AND notiid IN (" + placeholders + ")";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userid);
+            int index = 2;
+            for (int notiid : notiids) stmt.setInt(index++, notiid);
+            int changed = stmt.executeUpdate();
+            UNREAD.add(userid, -changed);
+            if (changed > 0) MAILBOX.reset(userid);
+            return changed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // Recount unread notifications from the table, e.g. after editing it directly in MySQL
+    public static boolean rebuildUnreadCounters() {
+        return UNREAD.rebuild();
+    }
+
+    private static Map<Integer, Integer> loadUnreadCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String sql = "SELECT userid, COUNT(*) FROM notification WHERE is_read = FALSE GROUP BY userid";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+            return counts;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     public static boolean updateNotification(int notiid, String newText) {
         String sql = "UPDATE notification SET text = ? WHERE notiid = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, newText);
             stmt.setInt(2, notiid);
             int affectedRows = stmt.executeUpdate();
+            // The owner is not known here, so drop every mailbox's copy
+            if (affectedRows > 0) MAILBOX.resetAll();
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1615,7 +2831,7 @@ public class Database {
 
     public static int addSchedule(Timestamp scheduledTime, String tittle, String detail, int userid) {
         String sql = "INSERT INTO schedule (scheduled_time, tittle, detail, userid) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setTimestamp(1, scheduledTime);
             stmt.setString(2, tittle);
@@ -1623,7 +2839,11 @@ public class Database {
             stmt.setInt(4, userid);
             stmt.executeUpdate();
             ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) return rs.getInt(1);
+            if (rs.next()) {
+                int scheduleid = rs.getInt(1);
+                REMINDERS.scheduled(scheduleid, reminderTime(scheduledTime), userid);
+                return scheduleid;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1632,14 +2852,16 @@ public class Database {
 
     public static boolean updateSchedule(int scheduleid, Timestamp scheduledTime, String tittle, String detail, int userid) {
         String sql = "UPDATE schedule SET scheduled_time = ?, tittle = ?, detail = ?, userid = ? WHERE scheduleid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setTimestamp(1, scheduledTime);
             stmt.setString(2, tittle);
             stmt.setString(3, detail);
             stmt.setInt(4, userid);
             stmt.setInt(5, scheduleid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) REMINDERS.scheduled(scheduleid, reminderTime(scheduledTime), userid);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1648,10 +2870,12 @@ public class Database {
 
     public static boolean deleteSchedule(int scheduleid) {
         String sql = "DELETE FROM schedule WHERE scheduleid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, scheduleid);
-            return stmt.executeUpdate() > 0;
+            boolean changed = stmt.executeUpdate() > 0;
+            if (changed) REMINDERS.cancelled(scheduleid);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1661,7 +2885,7 @@ public class Database {
     public static List<Schedule> getSchedulesByUserId(int userid) {
         List<Schedule> list = new ArrayList<>();
         String sql = "SELECT * FROM schedule WHERE userid = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userid);
             ResultSet rs = stmt.executeQuery();
@@ -1681,6 +2905,365 @@ public class Database {
 }
 
 
+    // Reminders for schedules, see ReminderDispatcher. Not started by default so tools sharing the database
+    // (DataGenerator, benchmarks) do not send reminders; call startReminders() or run with
+    // -Dpetcare.reminders=true. Several processes may run it, each reminder is sent once.
+    private static final ReminderDispatcher REMINDERS = new ReminderDispatcher(
+            Long.getLong("petcare.reminders.tickMs", 1_000),
+            Long.getLong("petcare.reminders.windowMs", 60 * 60_000L),
+            Long.getLong("petcare.reminders.rescanMs", 60_000),
+            Long.getLong("petcare.reminders.graceMs", 60 * 60_000L),
+            Database::loadReminders, Database::fireReminders);
+
+    static {
+        if (Boolean.getBoolean("petcare.reminders")) REMINDERS.start();
+    }
+
+    public static void startReminders() {
+        REMINDERS.start();
+    }
+
+    public static void stopReminders() {
+        REMINDERS.stop();
+    }
+
+    public static ReminderDispatcher.Stats getReminderStats() {
+        return REMINDERS.getStats();
+    }
+
+    // scheduled_time is a DATETIME, which rounds to whole seconds
+    private static long reminderTime(Timestamp scheduledTime) {
+        return Math.floorDiv(scheduledTime.getTime() + 500, 1000) * 1000;
+    }
+
+    private static final String UNREMINDED = "(reminded_time IS NULL OR reminded_time <> scheduled_time)";
+
+    private static List<ReminderDispatcher.Reminder> loadReminders(long fromTime, long untilTime) {
+        List<ReminderDispatcher.Reminder> list = new ArrayList<>();
+        String sql = "SELECT scheduleid, scheduled_time, userid FROM schedule "
+                + "WHERE scheduled_time > ? AND scheduled_time <= ? AND " + UNREMINDED;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(fromTime));
+            stmt.setTimestamp(2, new Timestamp(untilTime));
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(new ReminderDispatcher.Reminder(
+                        rs.getInt("scheduleid"),
+                        rs.getTimestamp("scheduled_time").getTime(),
+                        rs.getInt("userid")
+                ));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return list;
+    }
+
+    // Rows per claim; short chunks repeat their last row so every chunk uses the same three statements
+    private static final int REMINDER_CHUNK = 100;
+
+    // Claims the due rows that still have that scheduled_time and were not reminded (FOR UPDATE makes another
+    // process wait, then see them reminded), writes their notifications from the row itself and marks them,
+    // one transaction per chunk.
+    private static boolean fireReminders(List<ReminderDispatcher.Reminder> due) {
+        String claimSql = "SELECT scheduleid, userid FROM schedule WHERE (scheduleid, scheduled_time) IN ("
+                + String.join(", ", Collections.nCopies(REMINDER_CHUNK, "(?, ?)")) + ") AND " + UNREMINDED + " FOR UPDATE";
+        String ids = String.join(", ", Collections.nCopies(REMINDER_CHUNK, "?"));
+        String insertSql = "INSERT INTO notification (userid, text) "
+                + "SELECT userid, CONCAT('Reminder: ', COALESCE(tittle, ''), IF(detail IS NULL OR detail = '', '', CONCAT(' - ', detail))) "
+                + "FROM schedule WHERE scheduleid IN (" + ids + ")";
+        String markSql = "UPDATE schedule SET reminded_time = scheduled_time WHERE scheduleid IN (" + ids + ")";
+        try (Connection conn = getConnection();
+             PreparedStatement claim = conn.prepareStatement(claimSql);
+             PreparedStatement insert = conn.prepareStatement(insertSql);
+             PreparedStatement mark = conn.prepareStatement(markSql)) {
+            conn.setAutoCommit(false);
+            for (int from = 0; from < due.size(); from += REMINDER_CHUNK) {
+                List<ReminderDispatcher.Reminder> chunk = due.subList(from, Math.min(from + REMINDER_CHUNK, due.size()));
+                try {
+                    for (int i = 0; i < REMINDER_CHUNK; i++) {
+                        ReminderDispatcher.Reminder r = chunk.get(Math.min(i, chunk.size() - 1));
+                        claim.setInt(2 * i + 1, r.scheduleid);
+                        claim.setTimestamp(2 * i + 2, new Timestamp(r.time));
+                    }
+                    List<Integer> claimed = new ArrayList<>();
+                    List<Integer> users = new ArrayList<>();
+                    try (ResultSet rs = claim.executeQuery()) {
+                        while (rs.next()) {
+                            claimed.add(rs.getInt("scheduleid"));
+                            users.add(rs.getInt("userid"));
+                        }
+                    }
+                    if (claimed.isEmpty()) {
+                        conn.rollback();
+                        continue;
+                    }
+                    for (int i = 0; i < REMINDER_CHUNK; i++) {
+                        int scheduleid = claimed.get(Math.min(i, claimed.size() - 1));
+                        insert.setInt(i + 1, scheduleid);
+                        mark.setInt(i + 1, scheduleid);
+                    }
+                    insert.executeUpdate();
+                    mark.executeUpdate();
+                    conn.commit();
+                    for (int userid : users) {
+                        UNREAD.add(userid, 1);
+                        MAILBOX.publishUnknown(userid);
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+
+//////////////////////////////////Streaming/////////////////////////////////////
+// Constant-memory variants of the getAll* methods for exports and reports.
+// Each stream holds one pooled connection until it is exhausted or closed, so use try-with-resources:
+//     try (Stream<User> users = Database.streamAllUsers()) { ... }
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    static <T> Stream<T> streamQuery(String sql, RowMapper<T> mapper) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = getConnection();
+            // Forward-only, read-only and fetch size MIN_VALUE makes Connector/J stream rows one at a time
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = stmt.executeQuery();
+            Connection c = conn;
+            PreparedStatement st = stmt;
+            Runnable close = () -> closeQuietly(rs, st, c);
+            Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!rs.next()) {
+                            close.run();
+                            return false;
+                        }
+                        action.accept(mapper.map(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        close.run();
+                        throw new RuntimeException("Streaming query failed: " + sql, e);
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(close);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            closeQuietly(null, stmt, conn);
+            return Stream.empty();
+        }
+    }
+
+    private static void closeQuietly(ResultSet rs, Statement stmt, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            if (stmt != null) stmt.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public static Stream<User> streamAllUsers() {
+        return streamQuery("SELECT * FROM user", rs -> new User(
+                rs.getInt("userid"),
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getString("password"),
+                rs.getString("gender"),
+                rs.getString("role")
+        ));
+    }
+
+    public static Stream<Ticket> streamAllTickets() {
+        return streamQuery("SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket", Database::mapTicketSummary);
+    }
+
+    public static Stream<Service> streamAllServices() {
+        return streamQuery("SELECT " + SERVICE_SUMMARY_COLUMNS + " FROM service", Database::mapServiceSummary);
+    }
+
+    public static Stream<PetOwner> streamAllPetOwners() {
+        return streamQuery("SELECT * FROM petowner", rs -> new PetOwner(
+                rs.getInt("id"),
+                rs.getString("phone"),
+                rs.getString("city"),
+                rs.getString("address")
+        ));
+    }
+
+    public static Stream<ServiceProvider> streamAllServiceProviders() {
+        return streamQuery("SELECT " + SERVICE_PROVIDER_SUMMARY_COLUMNS + " FROM serviceprovider", Database::mapServiceProviderSummary);
+    }
+
+    public static Stream<TimeSlot> streamAllTimeSlots() {
+        return streamQuery("SELECT * FROM timeslot", rs -> new TimeSlot(rs.getInt("serviceid"), rs.getTime("slot")));
+    }
+
+//////////////////////////////////Pagination/////////////////////////////////////
+// Keyset (seek) pagination: each page continues after the last key of the previous one,
+// so any page costs one index range scan no matter how much history lies before it.
+// Pass null as token for the first page; nextToken is null on the last page.
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static class Page<T> {
+        public List<T> items;
+        public String nextToken;
+
+        public Page(List<T> items, String nextToken) {
+            this.items = items;
+            this.nextToken = nextToken;
+        }
+
+        public boolean hasMore() {
+            return nextToken != null;
+        }
+    }
+
+    @FunctionalInterface
+    interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Runs sql (which must end in "LIMIT ?") fetching one extra row to learn whether another page exists
+    private static <T> Page<T> queryPage(String sql, int limit, StatementBinder binder, RowMapper<T> mapper,
+                                         Function<T, String> tokenOf) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<T> items = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            stmt.setInt(stmt.getParameterMetaData().getParameterCount(), size + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new Page<>(items, null);
+        }
+        if (items.size() <= size) return new Page<>(items, null);
+        items.remove(size);
+        return new Page<>(items, tokenOf.apply(items.get(size - 1)));
+    }
+
+    private static String encodeToken(String kind, long... keys) {
+        StringBuilder sb = new StringBuilder(kind);
+        for (long key : keys) sb.append(':').append(key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeToken(String kind, String token, int keyCount) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != keyCount + 1 || !parts[0].equals(kind)) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            long[] keys = new long[keyCount];
+            for (int i = 0; i < keyCount; i++) keys[i] = Long.parseLong(parts[i + 1]);
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    // All tickets, oldest first
+    public static Page<Ticket> getTicketsPage(String token, int limit) {
+        long after = token == null ? 0 : decodeToken("t", token, 1)[0];
+        String sql = "SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket WHERE ticketid > ? ORDER BY ticketid LIMIT ?";
+        return queryPage(sql, limit, stmt -> stmt.setLong(1, after),
+                Database::mapTicketSummary, t -> encodeToken("t", t.ticketid));
+    }
+
+    // A manager's ticket queue, oldest first
+    public static Page<Ticket> getTicketsByManagerIdPage(int managerid, String token, int limit) {
+        long after = token == null ? 0 : decodeToken("tm", token, 1)[0];
+        String sql = "SELECT " + TICKET_SUMMARY_COLUMNS + " FROM ticket WHERE managerid = ? AND ticketid > ? ORDER BY ticketid LIMIT ?";
+        return queryPage(sql, limit, stmt -> {
+            stmt.setInt(1, managerid);
+            stmt.setLong(2, after);
+        }, Database::mapTicketSummary, t -> encodeToken("tm", t.ticketid));
+    }
+
+    // A user's notification inbox, newest first
+    public static Page<Notification> getNotificationsByUserIdPage(int userid, String token, int limit) {
+        long before = token == null ? Long.MAX_VALUE : decodeToken("n", token, 1)[0];
+        String sql = "SELECT * FROM notification WHERE userid = ? AND notiid < ? ORDER BY notiid DESC LIMIT ?";
+        return queryPage(sql, limit, stmt -> {
+            stmt.setInt(1, userid);
+            stmt.setLong(2, before);
+        }, Database::mapNotification, n -> encodeToken("n", n.notiid));
+    }
+
+    // A pet owner's bookings, newest first
+    public static Page<Booking> getBookingsByPetOwnerPage(int poid, String token, int limit) {
+        long before = token == null ? Long.MAX_VALUE : decodeToken("b", token, 1)[0];
+        String sql = "SELECT * FROM booking WHERE poid = ? AND bookid < ? ORDER BY bookid DESC LIMIT ?";
+        return queryPage(sql, limit, stmt -> {
+            stmt.setInt(1, poid);
+            stmt.setLong(2, before);
+        }, rs -> new Booking(
+                rs.getInt("bookid"),
+                rs.getInt("poid"),
+                rs.getInt("svid"),
+                rs.getTime("slot"),
+                rs.getTimestamp("book_timestamp"),
+                rs.getDate("servedate"),
+                rs.getString("payment_method"),
+                rs.getString("status")
+        ), b -> encodeToken("b", b.bookid));
+    }
+
+    // A user's schedules ordered by scheduled_time (ties broken by scheduleid)
+    public static Page<Schedule> getSchedulesByUserIdPage(int userid, String token, int limit) {
+        RowMapper<Schedule> mapper = rs -> new Schedule(
+                rs.getInt("scheduleid"),
+                rs.getTimestamp("scheduled_time"),
+                rs.getString("tittle"),
+                rs.getString("detail"),
+                rs.getInt("userid")
+        );
+        Function<Schedule, String> tokenOf =
+                sc -> encodeToken("s", sc.scheduledTime.getTime(), sc.scheduleid);
+        if (token == null) {
+            String sql = "SELECT * FROM schedule WHERE userid = ? ORDER BY scheduled_time, scheduleid LIMIT ?";
+            return queryPage(sql, limit, stmt -> stmt.setInt(1, userid), mapper, tokenOf);
+        }
+        long[] key = decodeToken("s", token, 2);
+        Timestamp time = new Timestamp(key[0]);
+        String sql = "SELECT * FROM schedule WHERE userid = ? AND (scheduled_time > ? OR (scheduled_time = ? AND scheduleid > ?)) "
+                + "ORDER BY scheduled_time, scheduleid LIMIT ?";
+        return queryPage(sql, limit, stmt -> {
+            stmt.setInt(1, userid);
+            stmt.setTimestamp(2, time);
+            stmt.setTimestamp(3, time);
+            stmt.setLong(4, key[1]);
+        }, mapper, tokenOf);
+    }
+
     public static void main(String[] args) {
         int testUserId = 12; 
 
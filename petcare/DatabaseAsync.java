@@ -0,0 +1,513 @@
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Non-blocking facade over Database: every method runs the blocking call on a background thread
+// and returns a CompletableFuture, so independent reads can be fanned out in parallel.
+// Uses a virtual thread per task on Java 21+, otherwise a fixed pool of platform threads.
+// At most as many calls run at once as the connection pool has connections; the rest queue.
+public class DatabaseAsync {
+    private static final int MAX_CONCURRENCY = Database.getPoolMaxSize();
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENCY, true);
+    private static final ExecutorService executor = newExecutor();
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(MAX_CONCURRENCY, r -> {
+                Thread t = new Thread(r, "petcare-db-async");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Run any blocking Database call asynchronously under the concurrency limit
+    public static <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return call.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    public static class OwnerOverview {
+        public Database.User user;
+        public Database.PetOwner owner;
+        public List<Database.Pet> pets;
+        public List<Database.Booking> bookings;
+        public List<Database.Notification> notifications;
+    }
+
+    // Load an owner's profile, pets, bookings and notifications in parallel
+    public static CompletableFuture<OwnerOverview> getOwnerOverview(int userid) {
+        CompletableFuture<Database.User> user = getUserById(userid);
+        CompletableFuture<Database.PetOwner> owner = getPetOwnerById(userid);
+        CompletableFuture<List<Database.Pet>> pets = getPetsByUserId(userid);
+        CompletableFuture<List<Database.Booking>> bookings = getBookingsByPetOwner(userid);
+        CompletableFuture<List<Database.Notification>> notifications = getNotificationsByUserId(userid);
+        return CompletableFuture.allOf(user, owner, pets, bookings, notifications).thenApply(v -> {
+            OwnerOverview o = new OwnerOverview();
+            o.user = user.join();
+            o.owner = owner.join();
+            o.pets = pets.join();
+            o.bookings = bookings.join();
+            o.notifications = notifications.join();
+            return o;
+        });
+    }
+
+    // -------- USER --------
+    public static CompletableFuture<Boolean> addUser(String name, String email, String password, String gender, String role) {
+        return supply(() -> Database.addUser(name, email, password, gender, role));
+    }
+
+    public static CompletableFuture<Boolean> deleteUser(int userid) {
+        return supply(() -> Database.deleteUser(userid));
+    }
+
+    public static CompletableFuture<Database.User> getUserById(int userid) {
+        return supply(() -> Database.getUserById(userid));
+    }
+
+    public static CompletableFuture<List<Database.User>> getAllUsers() {
+        return supply(() -> Database.getAllUsers());
+    }
+
+    public static CompletableFuture<Boolean> updateUser(int userid, String name, String email, String password, String gender, String role) {
+        return supply(() -> Database.updateUser(userid, name, email, password, gender, role));
+    }
+
+    // -------- MANAGER --------
+    public static CompletableFuture<Database.Manager> getManagerById(int id) {
+        return supply(() -> Database.getManagerById(id));
+    }
+
+    public static CompletableFuture<List<Database.Manager>> getAllManagers() {
+        return supply(() -> Database.getAllManagers());
+    }
+
+    // -------- TICKET --------
+    public static CompletableFuture<Integer> createTicket(int userid, String subject, String description, byte[] attachment) {
+        return supply(() -> Database.createTicket(userid, subject, description, attachment));
+    }
+
+    public static CompletableFuture<Boolean> assignTicket(int ticketid, int managerid) {
+        return supply(() -> Database.assignTicket(ticketid, managerid));
+    }
+
+    public static CompletableFuture<Boolean> updateTicketResponse(int ticketid, byte[] response, String status) {
+        return supply(() -> Database.updateTicketResponse(ticketid, response, status));
+    }
+
+    public static CompletableFuture<Database.Ticket> getTicketById(int ticketid) {
+        return supply(() -> Database.getTicketById(ticketid));
+    }
+
+    public static CompletableFuture<List<Database.Ticket>> getAllTickets() {
+        return supply(() -> Database.getAllTickets());
+    }
+
+    public static CompletableFuture<List<Database.Ticket>> getTicketsByUserId(int userid) {
+        return supply(() -> Database.getTicketsByUserId(userid));
+    }
+
+    public static CompletableFuture<List<Database.Ticket>> getTicketsByManagerId(int managerid) {
+        return supply(() -> Database.getTicketsByManagerId(managerid));
+    }
+
+    public static CompletableFuture<Boolean> deleteTicket(int ticketid) {
+        return supply(() -> Database.deleteTicket(ticketid));
+    }
+
+    public static CompletableFuture<Boolean> updateTicket(int ticketid, String subject, String description, byte[] attachment) {
+        return supply(() -> Database.updateTicket(ticketid, subject, description, attachment));
+    }
+
+    public static CompletableFuture<Integer> autoAssignTicket(int ticketid) {
+        return supply(() -> Database.autoAssignTicket(ticketid));
+    }
+
+    public static CompletableFuture<Integer> assignPendingTickets(int limit) {
+        return supply(() -> Database.assignPendingTickets(limit));
+    }
+
+    public static CompletableFuture<List<Database.ManagerLoad>> getManagerLoads() {
+        return supply(() -> Database.getManagerLoads());
+    }
+
+    // -------- PET OWNER --------
+    public static CompletableFuture<Boolean> updatePetOwner(int userid, String phone, String city, String address) {
+        return supply(() -> Database.updatePetOwner(userid, phone, city, address));
+    }
+
+    public static CompletableFuture<Database.PetOwner> getPetOwnerById(int id) {
+        return supply(() -> Database.getPetOwnerById(id));
+    }
+
+    public static CompletableFuture<List<Database.PetOwner>> getAllPetOwners() {
+        return supply(() -> Database.getAllPetOwners());
+    }
+
+    // -------- PET --------
+    public static CompletableFuture<Integer> addPet(String name, String breed, String description, byte[] picture, int age, Date dob, int userid) {
+        return supply(() -> Database.addPet(name, breed, description, picture, age, dob, userid));
+    }
+
+    public static CompletableFuture<Boolean> updatePet(int petid, String name, String breed, String description, byte[] picture, int age, Date dob, int userid) {
+        return supply(() -> Database.updatePet(petid, name, breed, description, picture, age, dob, userid));
+    }
+
+    public static CompletableFuture<Boolean> deletePet(int petid) {
+        return supply(() -> Database.deletePet(petid));
+    }
+
+    public static CompletableFuture<List<Database.Pet>> getPetsByUserId(int userid) {
+        return supply(() -> Database.getPetsByUserId(userid));
+    }
+
+    public static CompletableFuture<Integer> addDiet(String name, String amount, String description, int petid) {
+        return supply(() -> Database.addDiet(name, amount, description, petid));
+    }
+
+    public static CompletableFuture<List<Database.Diet>> getDietsByPetId(int petid) {
+        return supply(() -> Database.getDietsByPetId(petid));
+    }
+
+    public static CompletableFuture<Boolean> deleteDiet(int dietid) {
+        return supply(() -> Database.deleteDiet(dietid));
+    }
+
+    public static CompletableFuture<Integer> addActivity(String name, String description, int petid) {
+        return supply(() -> Database.addActivity(name, description, petid));
+    }
+
+    public static CompletableFuture<List<Database.Activity>> getActivitiesByPetId(int petid) {
+        return supply(() -> Database.getActivitiesByPetId(petid));
+    }
+
+    public static CompletableFuture<Boolean> deleteActivity(int activityid) {
+        return supply(() -> Database.deleteActivity(activityid));
+    }
+
+    // -------- PET SCHEDULE --------
+    public static CompletableFuture<Integer> addPetSchedule(Date startdate, String repeatOption, int hour, int minute, Integer dietid, Integer activityid) {
+        return supply(() -> Database.addPetSchedule(startdate, repeatOption, hour, minute, dietid, activityid));
+    }
+
+    public static CompletableFuture<List<Database.PetSchedule>> getPetSchedulesByDietId(int dietid) {
+        return supply(() -> Database.getPetSchedulesByDietId(dietid));
+    }
+
+    public static CompletableFuture<List<Database.PetSchedule>> getPetSchedulesByActivityId(int activityid) {
+        return supply(() -> Database.getPetSchedulesByActivityId(activityid));
+    }
+
+    public static CompletableFuture<Boolean> deletePetSchedule(int petscheduleid) {
+        return supply(() -> Database.deletePetSchedule(petscheduleid));
+    }
+
+    public static CompletableFuture<Boolean> updatePetSchedule(int petscheduleid, Date startdate, String repeatOption, int hour, int minute, Integer dietid, Integer activityid) {
+        return supply(() -> Database.updatePetSchedule(petscheduleid, startdate, repeatOption, hour, minute, dietid, activityid));
+    }
+
+    public static CompletableFuture<List<PetScheduleExpander.Occurrence>> getPetPlan(int userid, Date from, Date to) {
+        return supply(() -> Database.getPetPlan(userid, from, to));
+    }
+
+    public static CompletableFuture<List<Database.PetDetail>> getPetDashboard(int userid) {
+        return supply(() -> Database.getPetDashboard(userid));
+    }
+
+    // -------- BOOKING --------
+    public static CompletableFuture<Integer> addBooking(int poid, int svid, Time slot, Date serveDate, String paymentMethod, String status) {
+        return supply(() -> Database.addBooking(poid, svid, slot, serveDate, paymentMethod, status));
+    }
+
+    public static CompletableFuture<Boolean> addBookingPet(int bookid, int petid) {
+        return supply(() -> Database.addBookingPet(bookid, petid));
+    }
+
+    public static CompletableFuture<boolean[]> addBookingPets(int bookid, Collection<Integer> petids) {
+        return supply(() -> Database.addBookingPets(bookid, petids));
+    }
+
+    public static CompletableFuture<Integer> createBookingWithPets(int poid, int svid, Time slot, Date serveDate, String paymentMethod, String status, Collection<Integer> petids) {
+        return supply(() -> Database.createBookingWithPets(poid, svid, slot, serveDate, paymentMethod, status, petids));
+    }
+
+    public static CompletableFuture<List<Database.Booking>> getBookingsByPetOwner(int poid) {
+        return supply(() -> Database.getBookingsByPetOwner(poid));
+    }
+
+    public static CompletableFuture<Boolean> deleteBooking(int bookid) {
+        return supply(() -> Database.deleteBooking(bookid));
+    }
+
+    public static CompletableFuture<List<Database.Booking>> getBookingsByServiceId(int svid, Date serveDate) {
+        return supply(() -> Database.getBookingsByServiceId(svid, serveDate));
+    }
+
+    public static CompletableFuture<List<Database.Booking>> getBookingsByProviderId(int providerid, Date from, Date to) {
+        return supply(() -> Database.getBookingsByProviderId(providerid, from, to));
+    }
+
+    // -------- SERVICE REPORT / REVIEW / UPDATE --------
+    public static CompletableFuture<Boolean> addServiceReport(int bookid, String text, byte[] image) {
+        return supply(() -> Database.addServiceReport(bookid, text, image));
+    }
+
+    public static CompletableFuture<Boolean> addServiceReview(int bookid, int start, String comment) {
+        return supply(() -> Database.addServiceReview(bookid, start, comment));
+    }
+
+    public static CompletableFuture<Boolean> addServiceUpdate(int bookid, int noUpdate, String text, byte[] image) {
+        return supply(() -> Database.addServiceUpdate(bookid, noUpdate, text, image));
+    }
+
+    public static CompletableFuture<List<Database.ServiceUpdate>> getServiceUpdatesByBookId(int bookid) {
+        return supply(() -> Database.getServiceUpdatesByBookId(bookid));
+    }
+
+    public static CompletableFuture<Database.ServiceReport> getServiceReport(int bookid) {
+        return supply(() -> Database.getServiceReport(bookid));
+    }
+
+    public static CompletableFuture<Database.ServiceReview> getServiceReview(int bookid) {
+        return supply(() -> Database.getServiceReview(bookid));
+    }
+
+    public static CompletableFuture<Database.BookingDetail> getBookingDetail(int bookid) {
+        return supply(() -> Database.getBookingDetail(bookid));
+    }
+
+    public static CompletableFuture<List<Database.BookingDetail>> getBookingDetails(List<Integer> bookids) {
+        return supply(() -> Database.getBookingDetails(bookids));
+    }
+
+    public static CompletableFuture<Database.Page<Database.BookingDetail>> getBookingDetailsByPetOwnerPage(int poid, String token, int limit) {
+        return supply(() -> Database.getBookingDetailsByPetOwnerPage(poid, token, limit));
+    }
+
+    // -------- SERVICE PROVIDER --------
+    public static CompletableFuture<Boolean> updateServiceProvider(int userid, String businessName, byte[] logo, String phone, String description, String address, String website) {
+        return supply(() -> Database.updateServiceProvider(userid, businessName, logo, phone, description, address, website));
+    }
+
+    public static CompletableFuture<Database.ServiceProvider> getServiceProviderById(int id) {
+        return supply(() -> Database.getServiceProviderById(id));
+    }
+
+    public static CompletableFuture<List<Database.ServiceProvider>> getAllServiceProviders() {
+        return supply(() -> Database.getAllServiceProviders());
+    }
+
+    // -------- SERVICE TYPE --------
+    public static CompletableFuture<Integer> addServiceType(String type) {
+        return supply(() -> Database.addServiceType(type));
+    }
+
+    public static CompletableFuture<Boolean> updateServiceType(int typeid, String newType) {
+        return supply(() -> Database.updateServiceType(typeid, newType));
+    }
+
+    public static CompletableFuture<Boolean> deleteServiceType(int typeid) {
+        return supply(() -> Database.deleteServiceType(typeid));
+    }
+
+    public static CompletableFuture<List<Database.ServiceType>> getAllServiceTypes() {
+        return supply(() -> Database.getAllServiceTypes());
+    }
+
+    public static CompletableFuture<Database.ServiceType> getServiceTypeById(int typeid) {
+        return supply(() -> Database.getServiceTypeById(typeid));
+    }
+
+    // -------- SERVICE --------
+    public static CompletableFuture<Integer> addService(String name, int price, String description, Time duration, byte[] license, int typeid, int providerid) {
+        return supply(() -> Database.addService(name, price, description, duration, license, typeid, providerid));
+    }
+
+    public static CompletableFuture<Boolean> updateService(int serviceid, String name, int price, String description, Time duration, byte[] license, int typeid, int providerid) {
+        return supply(() -> Database.updateService(serviceid, name, price, description, duration, license, typeid, providerid));
+    }
+
+    public static CompletableFuture<Boolean> deleteService(int serviceid) {
+        return supply(() -> Database.deleteService(serviceid));
+    }
+
+    public static CompletableFuture<Database.Service> getServiceById(int serviceid) {
+        return supply(() -> Database.getServiceById(serviceid));
+    }
+
+    public static CompletableFuture<List<Database.Service>> getAllServices() {
+        return supply(() -> Database.getAllServices());
+    }
+
+    public static CompletableFuture<List<Database.Service>> getServicesByProviderId(int providerid) {
+        return supply(() -> Database.getServicesByProviderId(providerid));
+    }
+
+    public static CompletableFuture<List<Database.Service>> getServicesByTypeId(int typeid) {
+        return supply(() -> Database.getServicesByTypeId(typeid));
+    }
+
+    public static CompletableFuture<List<Database.Service>> searchServices(String query, int limit) {
+        return supply(() -> Database.searchServices(query, limit));
+    }
+
+    public static CompletableFuture<Database.Page<Database.Service>> getServicesByPricePage(int typeid, int minPrice, int maxPrice,
+                                                                                          Time maxDuration, String token, int limit) {
+        return supply(() -> Database.getServicesByPricePage(typeid, minPrice, maxPrice, maxDuration, token, limit));
+    }
+
+    public static CompletableFuture<List<Database.Service>> getCheapestServices(int typeid, int minPrice, int maxPrice,
+                                                                              Time maxDuration, int limit) {
+        return supply(() -> Database.getCheapestServices(typeid, minPrice, maxPrice, maxDuration, limit));
+    }
+
+    public static CompletableFuture<List<Database.Service>> getShortestServices(int typeid, int minPrice, int maxPrice,
+                                                                              Time maxDuration, int limit) {
+        return supply(() -> Database.getShortestServices(typeid, minPrice, maxPrice, maxDuration, limit));
+    }
+
+    // -------- TIME SLOT --------
+    public static CompletableFuture<Boolean> addTimeSlot(int serviceid, Time slot) {
+        return supply(() -> Database.addTimeSlot(serviceid, slot));
+    }
+
+    public static CompletableFuture<boolean[]> addTimeSlots(int serviceid, Collection<Time> slots) {
+        return supply(() -> Database.addTimeSlots(serviceid, slots));
+    }
+
+    public static CompletableFuture<Boolean> deleteTimeSlot(int serviceid, Time slot) {
+        return supply(() -> Database.deleteTimeSlot(serviceid, slot));
+    }
+
+    public static CompletableFuture<List<Database.TimeSlot>> getTimeSlotsByServiceId(int serviceid) {
+        return supply(() -> Database.getTimeSlotsByServiceId(serviceid));
+    }
+
+    // -------- AVAILABILITY --------
+    public static CompletableFuture<List<Time>> getFreeSlots(int serviceid, Date serveDate) {
+        return supply(() -> Database.getFreeSlots(serviceid, serveDate));
+    }
+
+    public static CompletableFuture<Boolean> isSlotFree(int serviceid, Time slot, Date serveDate) {
+        return supply(() -> Database.isSlotFree(serviceid, slot, serveDate));
+    }
+
+    public static CompletableFuture<Map<Date, List<Time>>> getMonthAvailability(int serviceid, int year, int month) {
+        return supply(() -> Database.getMonthAvailability(serviceid, year, month));
+    }
+
+    // -------- NOTIFICATION --------
+    public static CompletableFuture<Integer> addNotification(int userid, String text) {
+        return supply(() -> Database.addNotification(userid, text));
+    }
+
+    public static CompletableFuture<boolean[]> addNotifications(Collection<Integer> userids, String text) {
+        return supply(() -> Database.addNotifications(userids, text));
+    }
+
+    public static CompletableFuture<Boolean> flushNotifications(long timeoutMillis) {
+        return supply(() -> Database.flushNotifications(timeoutMillis));
+    }
+
+    public static CompletableFuture<List<Database.Notification>> getNotificationsSince(int userid, int afterNotiid, int limit) {
+        return supply(() -> Database.getNotificationsSince(userid, afterNotiid, limit));
+    }
+
+    public static CompletableFuture<Integer> markNotificationsRead(int userid, int upToNotiid) {
+        return supply(() -> Database.markNotificationsRead(userid, upToNotiid));
+    }
+
+    public static CompletableFuture<Integer> markNotificationsRead(int userid, Collection<Integer> notiids) {
+        return supply(() -> Database.markNotificationsRead(userid, notiids));
+    }
+
+    // Long-poll without holding a thread or a concurrency permit while waiting: completes with the first
+    // batch of notifications newer than afterNotiid, or an empty list after timeoutMillis
+    public static CompletableFuture<List<Database.Notification>> waitForNotifications(int userid, int afterNotiid, long timeoutMillis) {
+        CompletableFuture<List<Database.Notification>> future = new CompletableFuture<>();
+        NotificationMailbox.Subscription sub = Database.subscribeNotifications(userid, afterNotiid, future::complete);
+        future.whenComplete((list, error) -> sub.close());
+        return future.completeOnTimeout(new ArrayList<>(), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static CompletableFuture<List<Database.Notification>> getNotificationsByUserId(int userid) {
+        return supply(() -> Database.getNotificationsByUserId(userid));
+    }
+
+    public static CompletableFuture<List<Database.TimeSlot>> getAllTimeSlots() {
+        return supply(() -> Database.getAllTimeSlots());
+    }
+
+    public static CompletableFuture<Boolean> deleteNotificationByNotiId(int notiid) {
+        return supply(() -> Database.deleteNotificationByNotiId(notiid));
+    }
+
+    public static CompletableFuture<Boolean> deleteNotificationsByUserId(int userid) {
+        return supply(() -> Database.deleteNotificationsByUserId(userid));
+    }
+
+    public static CompletableFuture<Boolean> updateNotification(int notiid, String newText) {
+        return supply(() -> Database.updateNotification(notiid, newText));
+    }
+
+    // -------- SCHEDULE --------
+    public static CompletableFuture<Integer> addSchedule(Timestamp scheduledTime, String tittle, String detail, int userid) {
+        return supply(() -> Database.addSchedule(scheduledTime, tittle, detail, userid));
+    }
+
+    public static CompletableFuture<Boolean> updateSchedule(int scheduleid, Timestamp scheduledTime, String tittle, String detail, int userid) {
+        return supply(() -> Database.updateSchedule(scheduleid, scheduledTime, tittle, detail, userid));
+    }
+
+    public static CompletableFuture<Boolean> deleteSchedule(int scheduleid) {
+        return supply(() -> Database.deleteSchedule(scheduleid));
+    }
+
+    public static CompletableFuture<List<Database.Schedule>> getSchedulesByUserId(int userid) {
+        return supply(() -> Database.getSchedulesByUserId(userid));
+    }
+
+    // -------- PAGINATION --------
+    public static CompletableFuture<Database.Page<Database.Ticket>> getTicketsPage(String token, int limit) {
+        return supply(() -> Database.getTicketsPage(token, limit));
+    }
+
+    public static CompletableFuture<Database.Page<Database.Ticket>> getTicketsByManagerIdPage(int managerid, String token, int limit) {
+        return supply(() -> Database.getTicketsByManagerIdPage(managerid, token, limit));
+    }
+
+    public static CompletableFuture<Database.Page<Database.Notification>> getNotificationsByUserIdPage(int userid, String token, int limit) {
+        return supply(() -> Database.getNotificationsByUserIdPage(userid, token, limit));
+    }
+
+    public static CompletableFuture<Database.Page<Database.Booking>> getBookingsByPetOwnerPage(int poid, String token, int limit) {
+        return supply(() -> Database.getBookingsByPetOwnerPage(poid, token, limit));
+    }
+
+    public static CompletableFuture<Database.Page<Database.Schedule>> getSchedulesByUserIdPage(int userid, String token, int limit) {
+        return supply(() -> Database.getSchedulesByUserIdPage(userid, token, limit));
+    }
+}
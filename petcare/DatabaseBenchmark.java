@@ -0,0 +1,199 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput/latency benchmark for the Database hot paths.
+// Seeds its own fixture rows, runs each operation for a warmup and a measured phase on N threads,
+// prints ops/s and latency percentiles, then removes the fixtures.
+//
+// Point it at a scratch database, never production:
+//   java -Dpetcare.db.url=jdbc:mysql://localhost:3307/petcare_bench -cp .:mysql-connector-j-9.3.0.jar \
+//        DatabaseBenchmark [threads] [warmupSeconds] [measureSeconds] [operation ...]
+// Fixture volume: -Dbench.tickets=1000 -Dbench.notifications=200 -Dbench.pets=20
+public class DatabaseBenchmark {
+    @FunctionalInterface
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    private static int ownerId;
+    private static int providerId;
+    private static int typeId;
+    private static int serviceId;
+    private static int petId;
+    private static final List<Integer> petIds = new ArrayList<>();
+    private static final List<Integer> ticketIds = new ArrayList<>();
+    private static final ConcurrentLinkedQueue<Integer> bookingIds = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger bookingSeq = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int warmupSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int measureSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        List<String> only = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) only.add(args[i]);
+
+        seed(Integer.getInteger("bench.tickets", 1000), Integer.getInteger("bench.notifications", 200),
+                Integer.getInteger("bench.pets", 20));
+        try {
+            Map<String, Operation> ops = new LinkedHashMap<>();
+            ops.put("getUserById", () -> Database.getUserById(ownerId));
+            ops.put("getServiceById", () -> Database.getServiceById(serviceId));
+            ops.put("getAllTickets", Database::getAllTickets);
+            ops.put("addBooking+addBookingPet", () -> {
+                // A distinct serve date per call keeps bookings from colliding on the same slot
+                Date serveDate = Date.valueOf(LocalDate.of(2030, 1, 1).plusDays(bookingSeq.getAndIncrement()));
+                int bookid = Database.addBooking(ownerId, serviceId, Time.valueOf("09:00:00"), serveDate, "cash", "pending");
+                if (bookid > 0) {
+                    bookingIds.add(bookid);
+                    Database.addBookingPet(bookid, petId);
+                }
+            });
+            ops.put("getNotificationsByUserId", () -> Database.getNotificationsByUserId(ownerId));
+            ops.put("petPage (per-pet calls)", DatabaseBenchmark::loadPetPagePerPet);
+            ops.put("getPetDashboard", () -> Database.getPetDashboard(ownerId));
+
+            System.out.printf("threads=%d warmup=%ds measure=%ds%n", threads, warmupSeconds, measureSeconds);
+            for (Map.Entry<String, Operation> op : ops.entrySet()) {
+                if (!only.isEmpty() && !only.contains(op.getKey())) continue;
+                long queries = queriesPerCall(op.getValue());
+                run(op.getValue(), threads, warmupSeconds);
+                LatencyHistogram histogram = new LatencyHistogram();
+                long calls = run(op.getValue(), threads, measureSeconds, histogram);
+                System.out.printf("%-26s %10.1f ops/s  %4s queries/call  %s%n", op.getKey(), calls / (double) measureSeconds,
+                        queries < 0 ? "?" : Long.toString(queries), histogram.summary());
+            }
+            System.out.println("pool: " + Database.getPoolStats());
+        } finally {
+            cleanup();
+            Database.shutdown();
+        }
+    }
+
+    // The N+1 way of rendering an owner's pet page that getPetDashboard replaces
+    private static void loadPetPagePerPet() {
+        for (Database.Pet pet : Database.getPetsByUserId(ownerId)) {
+            for (Database.Diet diet : Database.getDietsByPetId(pet.petid)) Database.getPetSchedulesByDietId(diet.dietid);
+            for (Database.Activity activity : Database.getActivitiesByPetId(pet.petid)) {
+                Database.getPetSchedulesByActivityId(activity.activityid);
+            }
+        }
+    }
+
+    // Statements one call executes, counted by DatabaseMetrics; -1 when metrics are disabled
+    private static long queriesPerCall(Operation op) throws Exception {
+        if (!DatabaseMetrics.isEnabled()) return -1;
+        long before = totalStatements();
+        op.run();
+        return totalStatements() - before;
+    }
+
+    private static long totalStatements() {
+        long total = 0;
+        for (DatabaseMetrics.MethodStats stats : DatabaseMetrics.getMethodStats()) total += stats.getStatements();
+        return total;
+    }
+
+    private static long run(Operation op, int threads, int seconds) throws InterruptedException {
+        return run(op, threads, seconds, null);
+    }
+
+    // Run op on all threads until the deadline; returns the number of completed calls
+    static long run(Operation op, int threads, int seconds, LatencyHistogram histogram) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong calls = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            op.run();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (histogram != null) histogram.record(System.nanoTime() - start);
+                        calls.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            worker.start();
+        }
+        done.await();
+        if (errors.get() > 0) System.out.println("  (" + errors.get() + " calls threw)");
+        return calls.get();
+    }
+
+    private static void seed(int tickets, int notifications, int pets) throws SQLException {
+        String tag = Long.toString(System.currentTimeMillis(), 36);
+        Database.addUser("bench owner", "owner-" + tag + "@bench.local", "x", "other", "pet owner");
+        Database.addUser("bench provider", "provider-" + tag + "@bench.local", "x", "other", "service provider");
+        ownerId = userIdByEmail("owner-" + tag + "@bench.local");
+        providerId = userIdByEmail("provider-" + tag + "@bench.local");
+        typeId = Database.addServiceType("bench-" + tag);
+        serviceId = Database.addService("bench grooming", 200_000, "benchmark fixture", Time.valueOf("01:00:00"),
+                null, typeId, providerId);
+        petId = Database.addPet("bench pet", "mixed", "benchmark fixture", null, 3, Date.valueOf("2022-01-01"), ownerId);
+        if (ownerId <= 0 || providerId <= 0 || serviceId <= 0 || petId <= 0) {
+            throw new SQLException("Failed to seed benchmark fixtures");
+        }
+
+        // The owner's pet page: each pet with two diets and two activities, one daily schedule each
+        petIds.add(petId);
+        for (int i = 1; i < pets; i++) {
+            petIds.add(Database.addPet("bench pet " + i, "mixed", "benchmark fixture", null, 3, Date.valueOf("2022-01-01"), ownerId));
+        }
+        for (int pet : petIds) {
+            for (int i = 0; i < 2; i++) {
+                int dietid = Database.addDiet("bench diet " + i, "100g", "benchmark fixture", pet);
+                Database.addPetSchedule(Date.valueOf("2025-01-01"), "daily", 7 + i * 10, 0, dietid, null);
+                int activityid = Database.addActivity("bench activity " + i, "benchmark fixture", pet);
+                Database.addPetSchedule(Date.valueOf("2025-01-01"), "daily", 9 + i * 8, 30, null, activityid);
+            }
+        }
+
+        for (int i = 0; i < tickets; i++) {
+            ticketIds.add(Database.createTicket(ownerId, "bench ticket " + i, "benchmark fixture", null));
+        }
+        Database.addNotifications(Collections.nCopies(notifications, ownerId), "benchmark notification");
+        System.out.printf("seeded owner=%d provider=%d service=%d pets=%d tickets=%d notifications=%d%n",
+                ownerId, providerId, serviceId, petIds.size(), tickets, notifications);
+    }
+
+    private static int userIdByEmail(String email) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT userid FROM user WHERE email = ?")) {
+            stmt.setString(1, email);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private static void cleanup() {
+        for (int bookid : bookingIds) Database.deleteBooking(bookid);
+        for (int ticketid : ticketIds) Database.deleteTicket(ticketid);
+        Database.deleteNotificationsByUserId(ownerId);
+        for (int pet : petIds) Database.deletePet(pet);
+        Database.deleteService(serviceId);
+        Database.deleteServiceType(typeId);
+        Database.deleteUser(ownerId);
+        Database.deleteUser(providerId);
+    }
+}
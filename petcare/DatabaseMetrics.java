@@ -0,0 +1,343 @@
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// Per-method latency histograms and call/error/statement/row/blob-byte counters for Database, plus pool
+// metrics. A call is timed from its first connection borrow on a thread (including the wait for the
+// connection) to the release of the last connection it holds there; nested borrows join it. It is
+// credited to the outermost Database method on the stack, found with one stack walk per call, so SQL
+// shared by several public methods or run from private helpers counts for each entry point. Calls
+// answered from memory (caches, indexes) borrow nothing and are not timed; a method that borrows
+// connections one after another (createTicket with auto-assign) counts once per borrow.
+// Statements are wrapped to count executions, rows changed and failures; result sets are not wrapped,
+// so reading rows costs nothing extra. Blob bytes are those loaded through LazyBlob.
+// Published as JMX MBeans under "petcare:*" and printable with report().
+// Disable with -Dpetcare.metrics=false; print a report periodically with -Dpetcare.metrics.reportSeconds=60.
+// Executions slower than -Dpetcare.slowQuery.ms are also handed to SlowQueryLog.
+public class DatabaseMetrics {
+    private static final boolean ENABLED = !"false".equals(System.getProperty("petcare.metrics"));
+    private static final Map<String, MethodStats> byMethod = new ConcurrentHashMap<>();
+    // Frames outside Database that borrow a connection on behalf of the real caller (LazyBlob, reflection)
+    private static final Set<String> HELPER_METHODS = Set.of("get", "invoke");
+    // Classes Database calls back into through loader lambdas, so they can sit between two Database frames
+    private static final Set<String> CALLBACK_CLASSES = Set.of("ReadCache", "SlotAvailability", "ServiceCatalog",
+            "ServiceSearchIndex", "ServicePriceIndex", "TicketAssigner", "UnreadCounters", "NotificationMailbox");
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final ThreadLocal<Call> CALLS = ThreadLocal.withInitial(Call::new);
+    private static ScheduledExecutorService reporter;
+
+    static {
+        long seconds = Long.getLong("petcare.metrics.reportSeconds", 0);
+        if (ENABLED && seconds > 0) startReporter(seconds);
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public interface MethodStatsMBean {
+        String getMethod();
+        long getCalls();
+        long getErrors();
+        long getStatements();
+        long getRowsChanged();
+        long getBlobBytes();
+        double getMeanMicros();
+        long getP50Micros();
+        long getP99Micros();
+        long getP999Micros();
+        long getMaxMicros();
+        void reset();
+    }
+
+    public static class MethodStats implements MethodStatsMBean {
+        final String method;
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Calls with a failed statement or no connection
+        final LongAdder errors = new LongAdder();
+        final LongAdder statements = new LongAdder();
+        final LongAdder rowsChanged = new LongAdder();
+        final LongAdder blobBytes = new LongAdder();
+
+        MethodStats(String method) {
+            this.method = method;
+        }
+
+        public String getMethod() { return method; }
+        public long getCalls() { return latency.getCount(); }
+        public long getErrors() { return errors.sum(); }
+        public long getStatements() { return statements.sum(); }
+        public long getRowsChanged() { return rowsChanged.sum(); }
+        public long getBlobBytes() { return blobBytes.sum(); }
+        public double getMeanMicros() { return latency.getMeanNanos() / 1000; }
+        public long getP50Micros() { return latency.getPercentileNanos(0.50) / 1000; }
+        public long getP99Micros() { return latency.getPercentileNanos(0.99) / 1000; }
+        public long getP999Micros() { return latency.getPercentileNanos(0.999) / 1000; }
+        public long getMaxMicros() { return latency.getMaxNanos() / 1000; }
+
+        public void reset() {
+            latency.reset();
+            errors.reset();
+            statements.reset();
+            rowsChanged.reset();
+            blobBytes.reset();
+        }
+
+        long totalNanos() {
+            return (long) (latency.getMeanNanos() * latency.getCount());
+        }
+    }
+
+    public interface PoolMetricsMBean {
+        int getTotalConnections();
+        int getActiveConnections();
+        int getIdleConnections();
+        int getThreadsAwaitingConnection();
+        long getTimeouts();
+        long getLeaks();
+        long getAcquireWaitP50Micros();
+        long getAcquireWaitP99Micros();
+        long getAcquireWaitMaxMicros();
+        long getStatementCacheHits();
+        long getStatementCacheMisses();
+        double getStatementCacheHitRate();
+    }
+
+    private static class PoolMetrics implements PoolMetricsMBean {
+        private final ConnectionPool pool;
+
+        PoolMetrics(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        public int getTotalConnections() { return pool.getStats().total; }
+        public int getActiveConnections() { return pool.getStats().active; }
+        public int getIdleConnections() { return pool.getStats().idle; }
+        public int getThreadsAwaitingConnection() { return pool.getStats().waiting; }
+        public long getTimeouts() { return pool.getStats().timeouts; }
+        public long getLeaks() { return pool.getStats().leaks; }
+        public long getAcquireWaitP50Micros() { return pool.getAcquireWait().getPercentileNanos(0.50) / 1000; }
+        public long getAcquireWaitP99Micros() { return pool.getAcquireWait().getPercentileNanos(0.99) / 1000; }
+        public long getAcquireWaitMaxMicros() { return pool.getAcquireWait().getMaxNanos() / 1000; }
+        public long getStatementCacheHits() { return pool.getStats().stmtCacheHits; }
+        public long getStatementCacheMisses() { return pool.getStats().stmtCacheMisses; }
+        public double getStatementCacheHitRate() { return pool.getStats().stmtCacheHitRate(); }
+    }
+
+    private static volatile ConnectionPool registeredPool;
+
+    static void registerPool(ConnectionPool pool) {
+        registeredPool = pool;
+        if (ENABLED) register("petcare:type=ConnectionPool", new PoolMetrics(pool), PoolMetricsMBean.class);
+    }
+
+    private static <T> void register(String name, T bean, Class<T> type) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) server.registerMBean(new StandardMBean(bean, type), objectName);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static List<MethodStats> getMethodStats() {
+        List<MethodStats> list = new ArrayList<>(byMethod.values());
+        list.sort(Comparator.comparingLong(MethodStats::totalNanos).reversed());
+        return list;
+    }
+
+    public static void reset() {
+        for (MethodStats stats : byMethod.values()) stats.reset();
+    }
+
+    // Text report, slowest methods (by total time) first
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %10s %7s %10s %11s %12s %9s %9s %9s %9s%n",
+                "method", "calls", "errors", "statements", "rowsChanged", "blobBytes", "mean", "p50", "p99", "max"));
+        for (MethodStats s : getMethodStats()) {
+            sb.append(String.format("%-40s %10d %7d %10d %11d %12d %9s %9s %9s %9s%n", s.method, s.getCalls(),
+                    s.getErrors(), s.getStatements(), s.getRowsChanged(), s.getBlobBytes(),
+                    LatencyHistogram.format((long) s.latency.getMeanNanos()),
+                    LatencyHistogram.format(s.latency.getPercentileNanos(0.50)),
+                    LatencyHistogram.format(s.latency.getPercentileNanos(0.99)),
+                    LatencyHistogram.format(s.latency.getMaxNanos())));
+        }
+        ConnectionPool pool = registeredPool;
+        if (pool != null) {
+            sb.append("pool: ").append(pool.getStats()).append('\n');
+            sb.append("pool acquire wait: ").append(pool.getAcquireWait().summary()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void startReporter(long periodSeconds) {
+        if (reporter != null) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "petcare-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.print(report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // One Database call on one thread; the pool enters it on borrow and exits it on release
+    static final class Call {
+        MethodStats stats;
+        long started;
+        int depth;
+        boolean failed;
+    }
+
+    static Call enter() {
+        Call call = CALLS.get();
+        if (call.depth++ == 0) {
+            call.stats = statsFor(caller());
+            call.started = System.nanoTime();
+            call.failed = false;
+        }
+        return call;
+    }
+
+    static void exit(Call call, boolean failed) {
+        if (failed) call.failed = true;
+        if (call.depth == 0 || --call.depth > 0) return;
+        call.stats.latency.record(System.nanoTime() - call.started);
+        if (call.failed) call.stats.errors.increment();
+        call.stats = null;
+    }
+
+    // Credited to the call in progress on this thread, if any
+    static void blobRead(long bytes) {
+        if (!ENABLED) return;
+        Call call = CALLS.get();
+        if (call.depth > 0) call.stats.blobBytes.add(bytes);
+    }
+
+    // Wrap a statement prepared on connection so its executions are counted against call
+    static PreparedStatement meter(PreparedStatement stmt, Connection connection, String sql, Call call) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new MeteredStatement(stmt, connection, sql, call));
+    }
+
+    private static MethodStats statsFor(String method) {
+        return byMethod.computeIfAbsent(method, m -> {
+            MethodStats stats = new MethodStats(m);
+            register("petcare:type=DatabaseMethod,name=" + ObjectName.quote(m), stats, MethodStatsMBean.class);
+            return stats;
+        });
+    }
+
+    // The outermost Database frame is the method the application called. Connections borrowed outside
+    // Database (LazyBlob, DataGenerator, ...) go to the first frame past the pool, the JDK and helpers.
+    // The walk stops at the first application frame, so its cost does not grow with the caller's stack.
+    private static String caller() {
+        return WALKER.walk(frames -> {
+            String outermost = null;
+            for (StackWalker.StackFrame f : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String cls = f.getClassName();
+                String m = f.getMethodName();
+                if (cls.equals(DatabaseMetrics.class.getName()) || cls.startsWith(ConnectionPool.class.getName())
+                        || cls.startsWith("java.") || cls.startsWith("jdk.") || cls.startsWith("com.sun.")
+                        || cls.contains("$Proxy") || m.startsWith("lambda$")
+                        || CALLBACK_CLASSES.contains(cls) || HELPER_METHODS.contains(m)) {
+                    continue;
+                }
+                if (cls.equals(Database.class.getName())) {
+                    if (!m.equals("getConnection")) outermost = m;
+                    continue;
+                }
+                return outermost != null ? "Database." + outermost : cls.substring(cls.lastIndexOf('.') + 1) + "." + m;
+            }
+            return outermost != null ? "Database." + outermost : "unknown";
+        });
+    }
+
+    private static class MeteredStatement implements InvocationHandler {
+        private final PreparedStatement stmt;
+        private final Connection connection;
+        private final String sql;
+        private final Call call;
+        private final MethodStats stats;
+        // Bind values and rows changed by the current execution, for the slow query log
+        private final Map<Integer, Object> params = new TreeMap<>();
+        private long rows;
+        private long started;
+
+        MeteredStatement(PreparedStatement stmt, Connection connection, String sql, Call call) {
+            this.stmt = stmt;
+            this.connection = connection;
+            this.sql = sql;
+            this.call = call;
+            this.stats = call.stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean execute = name.startsWith("execute");
+            if (execute) {
+                finish();
+                stats.statements.increment();
+                started = System.nanoTime();
+                rows = -1;
+            } else if (name.equals("close")) {
+                finish();
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("clearParameters")) {
+                params.clear();
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && SlowQueryLog.isEnabled()
+                    && method.getParameterTypes()[0] == int.class) {
+                params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            }
+            Object result;
+            try {
+                result = method.invoke(stmt, args);
+            } catch (InvocationTargetException e) {
+                if (execute && e.getCause() instanceof SQLException) {
+                    call.failed = true;
+                    finish();
+                }
+                throw e.getCause();
+            }
+            if (name.equals("executeUpdate") || name.equals("executeLargeUpdate")) {
+                rows = ((Number) result).longValue();
+            } else if (name.equals("executeBatch")) {
+                rows = 0;
+                for (int count : (int[]) result) if (count > 0) rows += count;
+            }
+            if (rows > 0 && execute) stats.rowsChanged.add(rows);
+            return result;
+        }
+
+        // Statement latency (execute until the next execute or close) only feeds the slow query log
+        private void finish() {
+            if (started != 0) {
+                long elapsed = System.nanoTime() - started;
+                started = 0;
+                if (SlowQueryLog.isEnabled()) SlowQueryLog.record(stats.method, sql, params, rows, elapsed);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free latency histogram in the style of HdrHistogram: values below 128ns are exact,
+// larger values fall into 64 linear sub-buckets per power of two (about 1.6% relative error).
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - 7) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        total.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    // Latency at quantile q (0..1), e.g. 0.99 for p99
+    public long getPercentileNanos(double q) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(valueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) counts.set(i, 0);
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    // e.g. "n=1200 mean=412us p50=380us p90=610us p99=1.2ms p999=3.4ms max=5.0ms"
+    public String summary() {
+        return "n=" + getCount()
+                + " mean=" + format((long) getMeanNanos())
+                + " p50=" + format(getPercentileNanos(0.50))
+                + " p90=" + format(getPercentileNanos(0.90))
+                + " p99=" + format(getPercentileNanos(0.99))
+                + " p999=" + format(getPercentileNanos(0.999))
+                + " max=" + format(getMaxNanos());
+    }
+
+    public static String format(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format("%.2fms", nanos / 1e6);
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+    private static int indexOf(long v) {
+        if (v < LINEAR_LIMIT) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - 6)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exp - 7) * SUB_BUCKETS + sub;
+    }
+
+    // Upper edge of a bucket, so percentiles never under-report
+    private static long valueOf(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int exp = (index - LINEAR_LIMIT) / SUB_BUCKETS + 7;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long upper = (long) (SUB_BUCKETS + sub + 1) << (exp - 6);
+        return upper <= 0 ? Long.MAX_VALUE : upper - 1;
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Handle to a blob column that list queries leave behind instead of reading it.
+// The bytes are fetched with a single-column primary key lookup on first access.
+public class LazyBlob {
+    private final String sql;
+    private final int[] key;
+    private byte[] data;
+    private boolean loaded;
+
+    // sql must select exactly one blob column and take the key values as parameters
+    LazyBlob(String sql, int... key) {
+        this.sql = sql;
+        this.key = key;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // Fetch (once) and return the blob, or null when the column is NULL or the row is gone
+    public synchronized byte[] get() {
+        if (!loaded) {
+            try (Connection conn = Database.getConnection();
+                 PreparedStatement stmt = prepare(conn)) {
+                ResultSet rs = stmt.executeQuery();
+                data = rs.next() ? rs.getBytes(1) : null;
+                loaded = true;
+                if (data != null) DatabaseMetrics.blobRead(data.length);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return data;
+    }
+
+    // Copy the blob to out without caching it in this handle; returns the number of bytes written.
+    // The row is streamed rather than buffered as a result set, but the driver still reads the row
+    // (so one copy of the blob) before handing out the stream.
+    public long writeTo(OutputStream out) throws IOException {
+        synchronized (this) {
+            if (loaded) {
+                if (data == null) return 0;
+                out.write(data);
+                return data.length;
+            }
+        }
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = prepare(conn, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) return 0;
+            try (InputStream in = rs.getBinaryStream(1)) {
+                long bytes = in == null ? 0 : in.transferTo(out);
+                DatabaseMetrics.blobRead(bytes);
+                return bytes;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to stream blob", e);
+        }
+    }
+
+    private PreparedStatement prepare(Connection conn) throws SQLException {
+        return bind(conn.prepareStatement(sql));
+    }
+
+    private PreparedStatement prepare(Connection conn, int type, int concurrency) throws SQLException {
+        return bind(conn.prepareStatement(sql, type, concurrency));
+    }
+
+    private PreparedStatement bind(PreparedStatement stmt) throws SQLException {
+        for (int i = 0; i < key.length; i++) {
+            stmt.setInt(i + 1, key[i]);
+        }
+        return stmt;
+    }
+}
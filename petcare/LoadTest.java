@@ -0,0 +1,149 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Replays a mixed owner/provider/manager workload through the Database methods against a dataset
+// built by DataGenerator, and reports throughput and p50/p99/p999 latency per operation.
+// It writes bookings and ticket responses, so only run it on a scratch database.
+//
+//   java -Dpetcare.db.url=... -cp .:mysql-connector-j-9.3.0.jar LoadTest [threads] [seconds]
+// Mix (percent of sessions): load.ownerPct [70], load.providerPct [20], the rest are managers.
+public class LoadTest {
+    @FunctionalInterface
+    interface Session {
+        void run(ThreadLocalRandom random) throws Exception;
+    }
+
+    private static int[] owners;
+    private static int[] providers;
+    private static int[] managers;
+    private static int[] services;
+    private static int[] bookings;
+    private static final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int ownerPct = Integer.getInteger("load.ownerPct", 70);
+        int providerPct = Integer.getInteger("load.providerPct", 20);
+
+        owners = ids("SELECT id FROM petowner");
+        providers = ids("SELECT id FROM serviceprovider");
+        managers = ids("SELECT id FROM manager");
+        services = ids("SELECT serviceid FROM service");
+        bookings = ids("SELECT bookid FROM booking");
+        if (owners.length == 0 || providers.length == 0 || managers.length == 0 || services.length == 0) {
+            System.err.println("No data to replay; run DataGenerator first");
+            return;
+        }
+        System.out.printf("owners=%d providers=%d managers=%d services=%d threads=%d duration=%ds%n",
+                owners.length, providers.length, managers.length, services.length, threads, seconds);
+
+        Session mixed = random -> {
+            int roll = random.nextInt(100);
+            if (roll < ownerPct) {
+                ownerSession(random);
+            } else if (roll < ownerPct + providerPct) {
+                providerSession(random);
+            } else {
+                managerSession(random);
+            }
+        };
+        LatencyHistogram overall = new LatencyHistogram();
+        long sessions = DatabaseBenchmark.run(() -> mixed.run(ThreadLocalRandom.current()), threads, seconds, overall);
+
+        System.out.printf("%-28s %10.1f sessions/s  %s%n", "session", sessions / (double) seconds, overall.summary());
+        synchronized (histograms) {
+            for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+                LatencyHistogram h = e.getValue();
+                System.out.printf("%-28s %10.1f calls/s     p50=%s p99=%s p999=%s max=%s%n", e.getKey(),
+                        h.getCount() / (double) seconds,
+                        LatencyHistogram.format(h.getPercentileNanos(0.50)),
+                        LatencyHistogram.format(h.getPercentileNanos(0.99)),
+                        LatencyHistogram.format(h.getPercentileNanos(0.999)),
+                        LatencyHistogram.format(h.getMaxNanos()));
+            }
+        }
+        System.out.println();
+        System.out.print(DatabaseMetrics.report());
+        Database.shutdown();
+    }
+
+    // Owner opens the app, checks pets, bookings and inbox, and sometimes books a service
+    private static void ownerSession(ThreadLocalRandom random) {
+        int owner = owners[random.nextInt(owners.length)];
+        List<Database.Pet> pets = timed("getPetsByUserId", () -> Database.getPetsByUserId(owner));
+        timed("getBookingsByPetOwnerPage", () -> Database.getBookingsByPetOwnerPage(owner, null, 20));
+        timed("getNotificationsByUserIdPage", () -> Database.getNotificationsByUserIdPage(owner, null, 20));
+        if (random.nextInt(10) == 0 && !pets.isEmpty()) {
+            int service = services[random.nextInt(services.length)];
+            List<Database.TimeSlot> slots = timed("getTimeSlotsByServiceId", () -> Database.getTimeSlotsByServiceId(service));
+            if (!slots.isEmpty()) {
+                Database.TimeSlot slot = slots.get(random.nextInt(slots.size()));
+                Date date = Date.valueOf(LocalDate.now().plusDays(1 + random.nextInt(60)));
+                List<Integer> petIds = List.of(pets.get(random.nextInt(pets.size())).petid);
+                timed("createBookingWithPets", () -> Database.createBookingWithPets(owner, service, slot.slot, date, "cash", "pending", petIds));
+            }
+        }
+    }
+
+    // Provider reviews their catalog and the progress updates of a booking
+    private static void providerSession(ThreadLocalRandom random) {
+        int provider = providers[random.nextInt(providers.length)];
+        List<Database.Service> own = timed("getServicesByProviderId", () -> Database.getServicesByProviderId(provider));
+        timed("getServiceProviderById", () -> Database.getServiceProviderById(provider));
+        if (!own.isEmpty()) {
+            int service = own.get(random.nextInt(own.size())).serviceid;
+            timed("getTimeSlotsByServiceId", () -> Database.getTimeSlotsByServiceId(service));
+        }
+        if (random.nextInt(5) == 0 && bookings.length > 0) {
+            int booking = bookings[random.nextInt(bookings.length)];
+            timed("getServiceUpdatesByBookId", () -> Database.getServiceUpdatesByBookId(booking));
+        }
+    }
+
+    // Manager works through the ticket queue
+    private static void managerSession(ThreadLocalRandom random) {
+        int manager = managers[random.nextInt(managers.length)];
+        Database.Page<Database.Ticket> queue = timed("getTicketsByManagerIdPage", () -> Database.getTicketsByManagerIdPage(manager, null, 20));
+        if (!queue.items.isEmpty() && random.nextInt(4) == 0) {
+            Database.Ticket ticket = queue.items.get(random.nextInt(queue.items.size()));
+            timed("getTicketById", () -> Database.getTicketById(ticket.ticketid));
+            timed("updateTicketResponse", () -> Database.updateTicketResponse(ticket.ticketid, "Đã xử lý".getBytes(), "solved"));
+        }
+    }
+
+    private static <T> T timed(String name, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            histogram(name).record(System.nanoTime() - start);
+        }
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        synchronized (histograms) {
+            return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+        }
+    }
+
+    private static int[] ids(String sql) throws SQLException {
+        List<Integer> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) list.add(rs.getInt(1));
+        }
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
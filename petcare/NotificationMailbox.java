@@ -0,0 +1,254 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// In-process per-user mailboxes for notification push. A mailbox exists only while someone long-polls
+// or subscribes for that user; it keeps the most recent notifications (bounded) so waiters are answered
+// from memory and woken as soon as Database publishes a new one. Rows written without a known notiid
+// (batches) just wake the waiters, who then read the table once. Idle mailboxes are evicted.
+// Rows written by other processes are never published here, so a snapshot is only trusted for
+// refreshMillis: after that waiters and subscribers read the table again.
+public class NotificationMailbox {
+    @FunctionalInterface
+    interface Loader {
+        // Notifications of userid newer than afterNotiid, oldest first, or null on failure
+        List<Database.Notification> since(int userid, int afterNotiid);
+    }
+
+    // Push delivery handle; close it to stop receiving
+    public static class Subscription implements AutoCloseable {
+        private final NotificationMailbox owner;
+        final int userid;
+        final Consumer<List<Database.Notification>> listener;
+        volatile int lastSeen;
+        volatile boolean closed;
+
+        private Subscription(NotificationMailbox owner, int userid, int afterNotiid, Consumer<List<Database.Notification>> listener) {
+            this.owner = owner;
+            this.userid = userid;
+            this.lastSeen = afterNotiid;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Mailbox m = owner.boxes.get(userid);
+            if (m != null) m.subscribers.remove(this);
+        }
+    }
+
+    private static class Mailbox {
+        final ArrayDeque<Database.Notification> recent = new ArrayDeque<>();
+        final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+        // Every notification with notiid > floor is in recent; -1 when unknown
+        int floor = -1;
+        long loadedAt;
+        long version;
+        int waiting;
+        long lastUsed = System.currentTimeMillis();
+
+        boolean covers(int afterNotiid, long now, long refreshMillis) {
+            return floor >= 0 && afterNotiid >= floor && now - loadedAt < refreshMillis;
+        }
+
+        boolean contains(int notiid) {
+            for (Iterator<Database.Notification> it = recent.descendingIterator(); it.hasNext(); ) {
+                int id = it.next().notiid;
+                if (id == notiid) return true;
+                if (id < notiid) return false;
+            }
+            return false;
+        }
+
+        List<Database.Notification> after(int afterNotiid) {
+            List<Database.Notification> list = new ArrayList<>();
+            for (Database.Notification n : recent) {
+                if (n.notiid > afterNotiid) list.add(n);
+            }
+            return list;
+        }
+    }
+
+    private final int capacity;
+    private final long idleMillis;
+    private final long refreshMillis;
+    private final Loader loader;
+    private final Map<Integer, Mailbox> boxes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "petcare-notification-mailbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    NotificationMailbox(int capacity, long idleMillis, long refreshMillis, Loader loader) {
+        this.capacity = capacity;
+        this.idleMillis = idleMillis;
+        this.refreshMillis = Math.max(1, refreshMillis);
+        this.loader = loader;
+        dispatcher.scheduleWithFixedDelay(this::evictIdle, idleMillis, Math.max(1, idleMillis / 2), TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::refreshSubscribers, this.refreshMillis, this.refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Long-poll: notifications newer than afterNotiid, waiting up to timeoutMillis for one to arrive.
+    // Returns an empty list on timeout.
+    public List<Database.Notification> poll(int userid, int afterNotiid, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Mailbox m = boxes.computeIfAbsent(userid, k -> new Mailbox());
+        while (true) {
+            long seen;
+            synchronized (m) {
+                seen = m.version;
+            }
+            List<Database.Notification> found = read(userid, m, afterNotiid);
+            if (!found.isEmpty()) return found;
+            synchronized (m) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return found;
+                // Sleep until the next publish unless one already happened since we looked
+                // and at most refreshMillis, so rows from other processes are still picked up
+                if (m.version == seen) {
+                    m.waiting++;
+                    try {
+                        m.wait(Math.min(left, refreshMillis));
+                    } finally {
+                        m.waiting--;
+                        m.lastUsed = System.currentTimeMillis();
+                    }
+                }
+            }
+            if (boxes.get(userid) != m) m = boxes.computeIfAbsent(userid, k -> new Mailbox());
+        }
+    }
+
+    // Push: listener gets every batch of new notifications (after afterNotiid) on the dispatcher thread
+    public Subscription subscribe(int userid, int afterNotiid, Consumer<List<Database.Notification>> listener) {
+        Subscription sub = new Subscription(this, userid, afterNotiid, listener);
+        boxes.computeIfAbsent(userid, k -> new Mailbox()).subscribers.add(sub);
+        dispatcher.execute(() -> deliver(sub));
+        return sub;
+    }
+
+    // Answer from memory when the mailbox covers afterNotiid with a fresh enough snapshot, else read the
+    // table and remember the result
+    private List<Database.Notification> read(int userid, Mailbox m, int afterNotiid) {
+        long version;
+        long now = System.currentTimeMillis();
+        synchronized (m) {
+            m.lastUsed = now;
+            if (m.covers(afterNotiid, now, refreshMillis)) return m.after(afterNotiid);
+            version = m.version;
+        }
+        List<Database.Notification> found = loader.since(userid, afterNotiid);
+        if (found == null) return new ArrayList<>();
+        synchronized (m) {
+            // Only trust the snapshot if nothing was published while we were reading
+            if (m.version == version && found.size() <= capacity) {
+                m.recent.clear();
+                m.recent.addAll(found);
+                m.floor = afterNotiid;
+                m.loadedAt = now;
+            }
+        }
+        return found;
+    }
+
+    // A notification with a known notiid was written
+    void publish(Database.Notification n) {
+        Mailbox m = boxes.get(n.userid);
+        if (m == null) return;
+        synchronized (m) {
+            // A read that ran after the insert committed may already have put n in recent
+            if (m.floor >= 0 && n.notiid > m.floor && !m.contains(n.notiid)) {
+                // Keep notiid order even if inserts finish out of order
+                ArrayDeque<Database.Notification> tail = new ArrayDeque<>();
+                while (!m.recent.isEmpty() && m.recent.peekLast().notiid > n.notiid) tail.addFirst(m.recent.pollLast());
+                m.recent.addLast(n);
+                m.recent.addAll(tail);
+                while (m.recent.size() > capacity) m.floor = m.recent.pollFirst().notiid;
+            }
+            m.version++;
+            m.notifyAll();
+        }
+        dispatch(m);
+    }
+
+    // Notifications were written for userid but their notiids are unknown; waiters re-read the table
+    void publishUnknown(int userid) {
+        Mailbox m = boxes.get(userid);
+        if (m == null) return;
+        synchronized (m) {
+            m.recent.clear();
+            m.floor = -1;
+            m.version++;
+            m.notifyAll();
+        }
+        dispatch(m);
+    }
+
+    // Notifications of userid were changed or deleted; drop what the mailbox remembers
+    void reset(int userid) {
+        Mailbox m = boxes.get(userid);
+        if (m == null) return;
+        synchronized (m) {
+            m.recent.clear();
+            m.floor = -1;
+            m.version++;
+        }
+    }
+
+    void resetAll() {
+        for (int userid : boxes.keySet()) reset(userid);
+    }
+
+    private void dispatch(Mailbox m) {
+        for (Subscription sub : m.subscribers) dispatcher.execute(() -> deliver(sub));
+    }
+
+    private void deliver(Subscription sub) {
+        if (sub.closed) return;
+        Mailbox m = boxes.computeIfAbsent(sub.userid, k -> new Mailbox());
+        if (!m.subscribers.contains(sub)) m.subscribers.add(sub);
+        List<Database.Notification> found = read(sub.userid, m, sub.lastSeen);
+        if (found.isEmpty()) return;
+        sub.lastSeen = found.get(found.size() - 1).notiid;
+        try {
+            sub.listener.accept(found);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Subscribers are otherwise only woken by publishes from this process
+    private void refreshSubscribers() {
+        for (Mailbox m : boxes.values()) {
+            if (!m.subscribers.isEmpty()) dispatch(m);
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        for (Iterator<Mailbox> it = boxes.values().iterator(); it.hasNext(); ) {
+            Mailbox m = it.next();
+            synchronized (m) {
+                if (m.waiting == 0 && m.subscribers.isEmpty() && m.lastUsed < cutoff) it.remove();
+            }
+        }
+    }
+
+    public int size() {
+        return boxes.size();
+    }
+
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+// Asynchronous notification sink with group commit. Producers append to a bounded lock-free queue and
+// return immediately; one writer thread drains it into batched multi-row INSERTs once maxBatch rows
+// are pending or windowMillis has passed since the first pending row, whichever comes first.
+// When the queue is full post() returns false (or waits up to a timeout) instead of blocking on I/O.
+// close() stops intake and writes everything still queued.
+public class NotificationWriter {
+    private static final String INSERT_SQL = "INSERT INTO notification (userid, text) VALUES (?, ?)";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static class Pending {
+        final int userid;
+        final String text;
+
+        Pending(int userid, String text) {
+            this.userid = userid;
+            this.text = text;
+        }
+    }
+
+    private final int capacity;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final IntConsumer onWritten;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    // Reserved slots; bounds the otherwise unbounded queue without a lock
+    private final AtomicInteger size = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+    private volatile boolean flushRequested;
+
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    // Rows taken off the queue and attempted, successfully or not; flush() waits on this
+    private volatile long processed;
+
+    // onWritten is called with the userid of every row that was written
+    public NotificationWriter(int capacity, int maxBatch, long windowMillis, IntConsumer onWritten) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Invalid writer size: capacity=" + capacity + ", maxBatch=" + maxBatch);
+        }
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.onWritten = onWritten;
+        this.writer = new Thread(this::run, "petcare-notification-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "petcare-notification-flush"));
+    }
+
+    // Queue a notification; false if the queue is full or the writer is closed
+    public boolean post(int userid, String text) {
+        if (!accepting) return false;
+        int n;
+        do {
+            n = size.get();
+            if (n >= capacity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } while (!size.compareAndSet(n, n + 1));
+        queue.offer(new Pending(userid, text));
+        posted.incrementAndGet();
+        // Wake the writer when a window opens or a full batch is ready
+        if (n == 0 || n + 1 == maxBatch) LockSupport.unpark(writer);
+        return true;
+    }
+
+    // Like post, but waits up to timeoutMillis for room in the queue
+    public boolean post(int userid, String text, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (accepting) {
+            if (size.get() < capacity && post(userid, text)) return true;
+            long left = deadline - System.nanoTime();
+            if (left <= 0) break;
+            LockSupport.parkNanos(Math.min(left, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        return false;
+    }
+
+    // Write everything posted before this call; returns false on timeout
+    public boolean flush(long timeoutMillis) {
+        long target = posted.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (processed < target) {
+            if (!writer.isAlive() || System.nanoTime() >= deadline) return processed >= target;
+            flushRequested = true;
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    // Stop accepting notifications and write out the queue; safe to call more than once
+    public void close() {
+        accepting = false;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || size.get() > 0) {
+            if (size.get() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            // Group commit: give producers one window to fill the batch
+            long deadline = System.nanoTime() + windowNanos;
+            while (running && !flushRequested && size.get() < maxBatch) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) break;
+                LockSupport.parkNanos(this, left);
+            }
+            flushRequested = false;
+
+            Pending p;
+            while (batch.size() < maxBatch && (p = queue.poll()) != null) batch.add(p);
+            if (batch.isEmpty()) continue;
+            write(batch);
+            size.addAndGet(-batch.size());
+            processed += batch.size();
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            boolean[] written = Database.executeBatch(INSERT_SQL, batch.size(), (stmt, i) -> {
+                stmt.setInt(1, batch.get(i).userid);
+                stmt.setString(2, batch.get(i).text);
+            });
+            for (int i = 0; i < written.length; i++) {
+                if (written[i]) {
+                    onWritten.accept(batch.get(i).userid);
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.addAndGet(batch.size());
+        }
+        batches.incrementAndGet();
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.queued = size.get();
+        s.posted = posted.get();
+        s.rejected = rejected.get();
+        s.written = processed - failed.get();
+        s.failed = failed.get();
+        s.batches = batches.get();
+        return s;
+    }
+
+    public static class Stats {
+        public int queued;
+        public long posted;
+        public long rejected;
+        public long written;
+        public long failed;
+        public long batches;
+
+        public double avgBatchSize() {
+            return batches == 0 ? 0 : (double) (written + failed) / batches;
+        }
+
+        @Override
+        public String toString() {
+            return "queued=" + queued + ", posted=" + posted + ", rejected=" + rejected + ", written=" + written
+                    + ", failed=" + failed + ", batches=" + batches + String.format(", avgBatch=%.1f", avgBatchSize());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput of PetScheduleExpander; runs in memory, no database needed.
+// Compiles N synthetic schedules (repeat options mixed like DataGenerator) and expands them in chunks
+// over a one-day and a one-month window, then merges an owner-sized set in time order.
+//   java -cp . PetScheduleBenchmark [threads] [warmupSeconds] [measureSeconds]
+// Volume: -Dbench.schedules=1000000 -Dbench.chunk=10000 -Dbench.ownerSchedules=50
+public class PetScheduleBenchmark {
+    private static final String[] REPEAT_OPTIONS = {"daily", "daily", "weekly", "monthly", "none"};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int warmupSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int measureSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int count = Integer.getInteger("bench.schedules", 1_000_000);
+        int chunk = Math.min(count, Integer.getInteger("bench.chunk", 10_000));
+        int ownerSchedules = Integer.getInteger("bench.ownerSchedules", 50);
+
+        LocalDate today = LocalDate.of(2025, 6, 15);
+        PetScheduleExpander.Rule[] rules = rules(count, today, new Random(42));
+        System.out.printf("threads=%d warmup=%ds measure=%ds schedules=%d chunk=%d%n",
+                threads, warmupSeconds, measureSeconds, count, chunk);
+
+        expand("expand 1 day", rules, chunk, today.atStartOfDay(), today.plusDays(1).atStartOfDay(),
+                threads, warmupSeconds, measureSeconds);
+        expand("expand 1 month", rules, chunk, today.withDayOfMonth(1).atStartOfDay(),
+                today.withDayOfMonth(1).plusMonths(1).atStartOfDay(), threads, warmupSeconds, measureSeconds);
+
+        List<PetScheduleExpander.Rule> owner = new ArrayList<>();
+        for (int i = 0; i < ownerSchedules; i++) owner.add(rules[i]);
+        LocalDateTime from = today.atStartOfDay();
+        LocalDateTime to = today.plusDays(7).atStartOfDay();
+        AtomicLong occurrences = new AtomicLong();
+        DatabaseBenchmark.Operation merge = () -> occurrences.addAndGet(PetScheduleExpander.mergeToList(owner, from, to).size());
+        DatabaseBenchmark.run(merge, threads, warmupSeconds, null);
+        occurrences.set(0);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long calls = DatabaseBenchmark.run(merge, threads, measureSeconds, histogram);
+        System.out.printf("%-16s %12.0f owners/s %14.0f occurrences/s  %s%n", "merge 7 days",
+                calls / (double) measureSeconds, occurrences.get() / (double) measureSeconds, histogram.summary());
+    }
+
+    private static void expand(String name, PetScheduleExpander.Rule[] rules, int chunk, LocalDateTime from, LocalDateTime to,
+                               int threads, int warmupSeconds, int measureSeconds) throws InterruptedException {
+        long fromMinute = PetScheduleExpander.toMinute(from);
+        long toMinute = PetScheduleExpander.toMinute(to);
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicLong occurrences = new AtomicLong();
+        AtomicLong checksum = new AtomicLong();
+        DatabaseBenchmark.Operation op = () -> {
+            int offset = Math.floorMod(cursor.getAndAdd(chunk), rules.length - chunk + 1);
+            long[] sum = new long[1];
+            occurrences.addAndGet(PetScheduleExpander.expand(rules, offset, chunk, fromMinute, toMinute,
+                    (rule, minute) -> sum[0] += minute));
+            checksum.addAndGet(sum[0]);
+        };
+        DatabaseBenchmark.run(op, threads, warmupSeconds, null);
+        occurrences.set(0);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long calls = DatabaseBenchmark.run(op, threads, measureSeconds, histogram);
+        System.out.printf("%-16s %12.0f schedules/s %11.0f occurrences/s  %s (checksum %d)%n", name,
+                calls * (double) chunk / measureSeconds, occurrences.get() / (double) measureSeconds,
+                histogram.summary(), checksum.get() & 0xffff);
+    }
+
+    private static PetScheduleExpander.Rule[] rules(int count, LocalDate today, Random random) {
+        PetScheduleExpander.Rule[] rules = new PetScheduleExpander.Rule[count];
+        for (int i = 0; i < count; i++) {
+            Database.PetSchedule schedule = new Database.PetSchedule(i + 1, Date.valueOf(today.minusDays(random.nextInt(400))),
+                    REPEAT_OPTIONS[random.nextInt(REPEAT_OPTIONS.length)], 6 + random.nextInt(16), random.nextInt(4) * 15,
+                    i + 1, null);
+            rules[i] = new PetScheduleExpander.Rule(schedule, 1 + i / 5);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,232 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Expands PetSchedule repeat rules ("none", "daily", "weekly", "monthly") into concrete occurrences.
+// A rule is compiled once into epoch-day arithmetic, so finding its occurrences in a window costs a
+// few integer operations and nothing is materialized: occurrences() walks one schedule lazily, merge()
+// interleaves many in time order and expand() feeds (rule, minute) pairs to a callback without
+// allocating. Windows are half-open [from, to). Monthly schedules keep the start day of the month and
+// fall on the last day of shorter months (Jan 31 -> Feb 28 -> Mar 31). Unknown options count as "none".
+public class PetScheduleExpander {
+    static final int NONE = 0;
+    static final int DAILY = 1;
+    static final int WEEKLY = 2;
+    static final int MONTHLY = 3;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long END = Long.MAX_VALUE;
+
+    public static class Occurrence {
+        public final int petid;
+        public final Database.PetSchedule schedule;
+        public final LocalDateTime time;
+
+        Occurrence(int petid, Database.PetSchedule schedule, LocalDateTime time) {
+            this.petid = petid;
+            this.schedule = schedule;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return time + " pet " + petid + " schedule " + schedule.petscheduleid
+                    + (schedule.dietid != null ? " diet " + schedule.dietid : " activity " + schedule.activityid);
+        }
+    }
+
+    @FunctionalInterface
+    interface OccurrenceSink {
+        // rule is the index into the array given to expand, epochMinute counts minutes from 1970-01-01T00:00
+        void accept(int rule, long epochMinute);
+    }
+
+    // A compiled schedule; occurrence k (k >= 0) is at(k), in epoch minutes
+    static final class Rule {
+        final Database.PetSchedule schedule;
+        final int petid;
+        final int kind;
+        final long first;
+        final int minuteOfDay;
+        // MONTHLY only: months since year 0 of the start date, and its day of month
+        final long startMonth;
+        final int dayOfMonth;
+
+        Rule(Database.PetSchedule schedule, int petid) {
+            this(schedule, petid, kindOf(schedule.repeatOption), schedule.startdate.toLocalDate(),
+                    schedule.hour * 60 + schedule.minute);
+        }
+
+        Rule(Database.PetSchedule schedule, int petid, int kind, LocalDate start, int minuteOfDay) {
+            this.schedule = schedule;
+            this.petid = petid;
+            this.kind = kind;
+            this.minuteOfDay = minuteOfDay;
+            this.first = start.toEpochDay() * MINUTES_PER_DAY + minuteOfDay;
+            this.startMonth = start.getYear() * 12L + start.getMonthValue() - 1;
+            this.dayOfMonth = start.getDayOfMonth();
+        }
+
+        long at(long k) {
+            switch (kind) {
+                case DAILY:
+                    return first + k * MINUTES_PER_DAY;
+                case WEEKLY:
+                    return first + k * 7 * MINUTES_PER_DAY;
+                case MONTHLY:
+                    long month = startMonth + k;
+                    long year = Math.floorDiv(month, 12);
+                    int m = Math.floorMod(month, 12) + 1;
+                    return epochDay(year, m, Math.min(dayOfMonth, lengthOfMonth(year, m))) * MINUTES_PER_DAY + minuteOfDay;
+                default:
+                    return k == 0 ? first : END;
+            }
+        }
+
+        // Index of the first occurrence at or after fromMinute
+        long firstIndex(long fromMinute) {
+            if (fromMinute <= first) return 0;
+            switch (kind) {
+                case DAILY:
+                    return ceilDiv(fromMinute - first, MINUTES_PER_DAY);
+                case WEEKLY:
+                    return ceilDiv(fromMinute - first, 7L * MINUTES_PER_DAY);
+                case MONTHLY:
+                    LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(fromMinute, MINUTES_PER_DAY));
+                    long k = Math.max(0, day.getYear() * 12L + day.getMonthValue() - 1 - startMonth - 1);
+                    while (at(k) < fromMinute) k++;
+                    return k;
+                default:
+                    return 1;
+            }
+        }
+    }
+
+    static int kindOf(String repeatOption) {
+        if (repeatOption == null) return NONE;
+        switch (repeatOption.trim().toLowerCase()) {
+            case "daily":
+                return DAILY;
+            case "weekly":
+                return WEEKLY;
+            case "monthly":
+                return MONTHLY;
+            default:
+                return NONE;
+        }
+    }
+
+    // Occurrences of one schedule in [from, to), in order, computed as the iterator advances
+    public static Iterator<LocalDateTime> occurrences(Database.PetSchedule schedule, LocalDateTime from, LocalDateTime to) {
+        Rule rule = new Rule(schedule, 0);
+        long toMinute = toMinute(to);
+        return new Iterator<LocalDateTime>() {
+            long k = rule.firstIndex(toMinute(from));
+            long next = rule.at(k);
+
+            @Override
+            public boolean hasNext() {
+                return next < toMinute;
+            }
+
+            @Override
+            public LocalDateTime next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                LocalDateTime time = toDateTime(next);
+                next = rule.at(++k);
+                return time;
+            }
+        };
+    }
+
+    // Occurrences of all rules in [from, to), merged in time order (ties by petscheduleid)
+    static Iterator<Occurrence> merge(List<Rule> rules, LocalDateTime from, LocalDateTime to) {
+        long fromMinute = toMinute(from);
+        long toMinute = toMinute(to);
+        PriorityQueue<long[]> heads = new PriorityQueue<>(Math.max(1, rules.size()), (a, b) -> a[0] != b[0]
+                ? Long.compare(a[0], b[0])
+                : Integer.compare(rules.get((int) a[1]).schedule.petscheduleid, rules.get((int) b[1]).schedule.petscheduleid));
+        for (int i = 0; i < rules.size(); i++) {
+            long k = rules.get(i).firstIndex(fromMinute);
+            long minute = rules.get(i).at(k);
+            // {minute, rule index, occurrence index}
+            if (minute < toMinute) heads.add(new long[]{minute, i, k});
+        }
+        return new Iterator<Occurrence>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Occurrence next() {
+                long[] head = heads.poll();
+                if (head == null) throw new NoSuchElementException();
+                Rule rule = rules.get((int) head[1]);
+                Occurrence occurrence = new Occurrence(rule.petid, rule.schedule, toDateTime(head[0]));
+                head[2]++;
+                head[0] = rule.at(head[2]);
+                if (head[0] < toMinute) heads.add(head);
+                return occurrence;
+            }
+        };
+    }
+
+    static List<Occurrence> mergeToList(List<Rule> rules, LocalDateTime from, LocalDateTime to) {
+        List<Occurrence> list = new ArrayList<>();
+        for (Iterator<Occurrence> it = merge(rules, from, to); it.hasNext(); ) list.add(it.next());
+        return list;
+    }
+
+    // Bulk form for large rule sets: every occurrence in [fromMinute, toMinute), rule by rule, without
+    // allocating. Returns the number of occurrences.
+    static long expand(Rule[] rules, int offset, int length, long fromMinute, long toMinute, OccurrenceSink sink) {
+        long count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            Rule rule = rules[i];
+            if (rule.first >= toMinute) continue;
+            for (long k = rule.firstIndex(fromMinute); ; k++) {
+                long minute = rule.at(k);
+                if (minute >= toMinute) break;
+                sink.accept(i, minute);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static long toMinute(LocalDateTime time) {
+        long minute = time.toLocalDate().toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+        // Occurrences fall on whole minutes, so a bound with seconds behaves like the next minute
+        return time.getSecond() == 0 && time.getNano() == 0 ? minute : minute + 1;
+    }
+
+    static LocalDateTime toDateTime(long epochMinute) {
+        LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        int minuteOfDay = Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        return day.atTime(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        if (month == 2) return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date, same as LocalDate.toEpochDay without the object
+    private static long epochDay(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+// Small in-process read-through cache with LRU size bound and TTL expiry.
+// Write methods in Database invalidate the entries they affect.
+public class ReadCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public ReadCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Return the cached value or load it; null results are not cached
+    public V get(K key, Function<K, V> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry<V> e = map.get(key);
+            if (e != null) {
+                if (System.currentTimeMillis() < e.expiresAt) {
+                    hits++;
+                    return e.value;
+                }
+                map.remove(key);
+                expirations++;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+        if (value == null) return null;
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                if (map.size() > maxSize) {
+                    Iterator<K> eldest = map.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        map.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        map.clear();
+    }
+
+    public synchronized Stats getStats() {
+        Stats s = new Stats();
+        s.name = name;
+        s.size = map.size();
+        s.hits = hits;
+        s.misses = misses;
+        s.evictions = evictions;
+        s.expirations = expirations;
+        return s;
+    }
+
+    public static class Stats {
+        public String name;
+        public int size;
+        public long hits;
+        public long misses;
+        public long evictions;
+        public long expirations;
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": size=" + size + ", hits=" + hits + ", misses=" + misses
+                    + ", hitRate=" + String.format("%.1f%%", hitRate() * 100)
+                    + ", evictions=" + evictions + ", expirations=" + expirations;
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Fires Schedule reminders. Upcoming schedules are loaded a window at a time into a hierarchical timing
+// wheel (4 levels of 64 buckets, one tick per tickMillis), so adding or cancelling a reminder is O(1)
+// however many are pending; the Database write methods keep the loaded window current.
+// Whether a schedule was reminded is stored on its own row: the Firer claims due rows that are still
+// unreminded, writes their notifications and marks them in one transaction, so two processes never both
+// send one. Every load asks for rows that are due and not yet reminded rather than resuming from a
+// cursor, so a restart, a failed batch or a row fired out of order is picked up again. Besides the
+// window reload, the next rescanMillis or so is rescanned every rescanMillis, so schedules written by
+// other processes are reminded at most rescanMillis late. Schedules more than graceMillis overdue (e.g.
+// added in the past, or missed while no dispatcher ran) are not reminded.
+public class ReminderDispatcher {
+    static class Reminder {
+        final int scheduleid;
+        // scheduled_time in epoch millis
+        final long time;
+        final int userid;
+        Reminder prev;
+        Reminder next;
+
+        Reminder(int scheduleid, long time, int userid) {
+            this.scheduleid = scheduleid;
+            this.time = time;
+            this.userid = userid;
+        }
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        // Schedules not yet reminded with fromTime < scheduled_time <= untilTime, or null on failure
+        List<Reminder> load(long fromTime, long untilTime);
+    }
+
+    @FunctionalInterface
+    interface Firer {
+        // Notify the schedules in due (ordered by time, scheduleid) that still have that time and were not
+        // reminded yet, marking them reminded in the same transaction; false on failure
+        boolean fire(List<Reminder> due);
+    }
+
+    private static final int LEVELS = 4;
+    private static final int SHIFT = 6;
+    private static final int SLOTS = 1 << SHIFT;
+    private static final int MASK = SLOTS - 1;
+    private static final long RETRY_MILLIS = 5_000;
+    private static final Comparator<Reminder> ORDER =
+            Comparator.comparingLong((Reminder r) -> r.time).thenComparingInt(r -> r.scheduleid);
+
+    private final long tickMillis;
+    private final long windowMillis;
+    private final long rescanMillis;
+    private final long graceMillis;
+    private final Loader loader;
+    private final Firer firer;
+
+    // Circular lists with a sentinel head per bucket, so unlinking needs no bucket lookup
+    private final Reminder[] buckets = new Reminder[LEVELS * SLOTS];
+    private final Map<Integer, Reminder> pending = new HashMap<>();
+    // Next tick to process
+    private long base;
+    private boolean ready;
+    // Every schedule up to here is in the wheel or fired, as far as this process knows
+    private long loadedUntil = Long.MIN_VALUE;
+    private long lastScan;
+    private boolean loading;
+    // Schedules written while a window was loading; the load result for them may be stale
+    private final Set<Integer> touched = new HashSet<>();
+
+    private long fired;
+    private long failures;
+    private ScheduledExecutorService executor;
+
+    ReminderDispatcher(long tickMillis, long windowMillis, long rescanMillis, long graceMillis, Loader loader, Firer firer) {
+        this.tickMillis = tickMillis;
+        this.windowMillis = windowMillis;
+        this.rescanMillis = rescanMillis;
+        this.graceMillis = graceMillis;
+        this.loader = loader;
+        this.firer = firer;
+        for (int i = 0; i < buckets.length; i++) {
+            Reminder head = new Reminder(0, 0, 0);
+            head.prev = head;
+            head.next = head;
+            buckets[i] = head;
+        }
+    }
+
+    synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "petcare-reminders");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::tick, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        ScheduledExecutorService e;
+        synchronized (this) {
+            e = executor;
+            executor = null;
+        }
+        if (e == null) return;
+        e.shutdown();
+        try {
+            e.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A schedule was added or updated
+    synchronized void scheduled(int scheduleid, long time, int userid) {
+        if (loading) touched.add(scheduleid);
+        unlink(pending.remove(scheduleid));
+        if (!ready || time > loadedUntil || time <= System.currentTimeMillis() - graceMillis) return;
+        insert(new Reminder(scheduleid, time, userid), dueTick(time));
+    }
+
+    synchronized void cancelled(int scheduleid) {
+        if (loading) touched.add(scheduleid);
+        unlink(pending.remove(scheduleid));
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                if (!ready) {
+                    base = Math.floorDiv(now, tickMillis);
+                    ready = true;
+                }
+            }
+            if (now + windowMillis / 2 >= loadedUntil) {
+                if (!load(now - graceMillis, now + windowMillis, now)) return;
+            } else if (now - lastScan >= rescanMillis) {
+                // Failed loads are retried on the next tick; what is already in the wheel still fires
+                load(now - graceMillis, Math.min(now + 2 * rescanMillis, loadedUntil), now);
+            }
+            List<Reminder> due = expire(Math.floorDiv(now, tickMillis));
+            if (due.isEmpty()) return;
+            due.sort(ORDER);
+            boolean sent = firer.fire(due);
+            synchronized (this) {
+                if (!sent) {
+                    // Try again shortly unless the schedule changed meanwhile
+                    failures++;
+                    long retry = Math.floorDiv(now + RETRY_MILLIS, tickMillis);
+                    for (Reminder r : due) {
+                        if (!pending.containsKey(r.scheduleid)) insert(r, retry);
+                    }
+                    return;
+                }
+                fired += due.size();
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean load(long from, long until, long now) {
+        long previousUntil;
+        synchronized (this) {
+            previousUntil = loadedUntil;
+            // Writes from here on are applied by the hooks up to the new bound
+            loadedUntil = Math.max(loadedUntil, until);
+            loading = true;
+            touched.clear();
+        }
+        List<Reminder> loaded = loader.load(from, until);
+        synchronized (this) {
+            loading = false;
+            if (loaded == null) {
+                loadedUntil = previousUntil;
+                touched.clear();
+                return false;
+            }
+            lastScan = now;
+            for (Reminder r : loaded) {
+                if (!touched.contains(r.scheduleid) && !pending.containsKey(r.scheduleid)) insert(r, dueTick(r.time));
+            }
+            touched.clear();
+            return true;
+        }
+    }
+
+    private long dueTick(long time) {
+        return -Math.floorDiv(-time, tickMillis);
+    }
+
+    private void insert(Reminder r, long dueTick) {
+        long due = Math.max(dueTick, base);
+        long delta = due - base;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SHIFT * (level + 1))) level++;
+        // Beyond the top level: park in its farthest bucket, the cascade re-places it
+        if (delta >= 1L << (SHIFT * LEVELS)) due = base + (1L << (SHIFT * LEVELS)) - 1;
+        Reminder head = buckets[level * SLOTS + (int) ((due >> (SHIFT * level)) & MASK)];
+        r.prev = head.prev;
+        r.next = head;
+        head.prev.next = r;
+        head.prev = r;
+        pending.put(r.scheduleid, r);
+    }
+
+    private void unlink(Reminder r) {
+        if (r == null || r.prev == null) return;
+        r.prev.next = r.next;
+        r.next.prev = r.prev;
+        r.prev = null;
+        r.next = null;
+    }
+
+    // Advance the wheel through nowTick, returning the reminders that came due
+    private synchronized List<Reminder> expire(long nowTick) {
+        List<Reminder> due = new ArrayList<>();
+        for (; base <= nowTick; base++) {
+            // Entering a new block of a level pulls its bucket down to the finer levels
+            for (int level = 1; level < LEVELS && ((base >> (SHIFT * (level - 1))) & MASK) == 0; level++) {
+                Reminder head = buckets[level * SLOTS + (int) ((base >> (SHIFT * level)) & MASK)];
+                for (Reminder r : drain(head)) {
+                    pending.remove(r.scheduleid);
+                    insert(r, dueTick(r.time));
+                }
+            }
+            for (Reminder r : drain(buckets[(int) (base & MASK)])) {
+                pending.remove(r.scheduleid);
+                due.add(r);
+            }
+        }
+        return due;
+    }
+
+    private static List<Reminder> drain(Reminder head) {
+        List<Reminder> list = new ArrayList<>();
+        for (Reminder r = head.next; r != head; ) {
+            Reminder next = r.next;
+            r.prev = null;
+            r.next = null;
+            list.add(r);
+            r = next;
+        }
+        head.prev = head;
+        head.next = head;
+        return list;
+    }
+
+    synchronized Stats getStats() {
+        Stats s = new Stats();
+        s.pending = pending.size();
+        s.fired = fired;
+        s.failures = failures;
+        s.loadedUntil = loadedUntil;
+        return s;
+    }
+
+    public static class Stats {
+        public int pending;
+        public long fired;
+        public long failures;
+        public long loadedUntil;
+
+        @Override
+        public String toString() {
+            return "pending=" + pending + ", fired=" + fired + ", failures=" + failures + ", loadedUntil="
+                    + (loadedUntil == Long.MIN_VALUE ? "-" : new java.sql.Timestamp(loadedUntil).toString());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// In-memory views over the service catalog (ServiceSearchIndex, ServicePriceIndex) share one load, one
+// lock and one set of write hooks. The first query loads a snapshot (null means failure, nothing is kept)
+// and resets every view from it; the Database write methods then keep the views current. Changes that
+// arrive while a snapshot is loading are journaled and replayed over it, since the snapshot may or may
+// not include them; an invalidate() during the load (cascading deletes) discards the snapshot instead.
+class ServiceCatalog {
+    interface View {
+        // All called with the write lock held
+        void reset(Database.Catalog snapshot);
+
+        void serviceChanged(Database.Service service);
+
+        void serviceRemoved(int serviceid);
+
+        default void providerChanged(int providerid, String businessName) {
+        }
+
+        default void typeChanged(int typeid, String type) {
+        }
+    }
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final Supplier<Database.Catalog> loader;
+    private final List<View> views = new ArrayList<>();
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadMonitor = new Object();
+    private volatile boolean loaded;
+    // Guarded by the write lock; non-null while a snapshot is loading
+    private List<Consumer<View>> journal;
+    private boolean invalidatedDuringLoad;
+    private final AtomicLong loads = new AtomicLong();
+
+    ServiceCatalog(Supplier<Database.Catalog> loader) {
+        this.loader = loader;
+    }
+
+    void register(View view) {
+        lock.writeLock().lock();
+        try {
+            views.add(view);
+            // A new view would miss the current snapshot
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Runs query under the read lock once the views are loaded; fallback if the catalog cannot be loaded
+    <T> T read(Supplier<T> query, T fallback) {
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            if (!loaded && !load(false)) return fallback;
+            lock.readLock().lock();
+            try {
+                // Invalidated between the load and the lock: load again
+                if (loaded) return query.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return fallback;
+    }
+
+    void serviceChanged(Database.Service service) {
+        apply(view -> view.serviceChanged(service));
+    }
+
+    void serviceRemoved(int serviceid) {
+        apply(view -> view.serviceRemoved(serviceid));
+    }
+
+    void providerChanged(int providerid, String businessName) {
+        apply(view -> view.providerChanged(providerid, businessName));
+    }
+
+    void typeChanged(int typeid, String type) {
+        apply(view -> view.typeChanged(typeid, type));
+    }
+
+    // Reload on next query (after cascading deletes)
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            if (journal != null) invalidatedDuringLoad = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean rebuild() {
+        return load(true);
+    }
+
+    long getLoads() {
+        return loads.get();
+    }
+
+    private void apply(Consumer<View> change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) views.forEach(change);
+            if (journal != null) journal.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean load(boolean force) {
+        synchronized (loadMonitor) {
+            // Another caller may have loaded while this one waited
+            if (loaded && !force) return true;
+            for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+                lock.writeLock().lock();
+                try {
+                    journal = new ArrayList<>();
+                    invalidatedDuringLoad = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                Database.Catalog catalog = loader.get();
+                lock.writeLock().lock();
+                try {
+                    List<Consumer<View>> changes = journal;
+                    journal = null;
+                    if (catalog == null) return false;
+                    if (invalidatedDuringLoad) continue;
+                    for (View view : views) {
+                        view.reset(catalog);
+                        changes.forEach(change -> change.accept(view));
+                    }
+                    loaded = true;
+                    loads.incrementAndGet();
+                    return true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return false;
+        }
+    }
+}
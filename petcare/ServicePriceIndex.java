@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Price and duration of every service, per service type, as parallel int arrays sorted by (price, serviceid).
+// A price range is two binary searches; listing by price walks the range in order and stops at the limit,
+// the shortest services come from one pass over the range with a bounded heap of packed longs. Nothing is
+// boxed per service except the Service returned. Loaded and kept current through ServiceCatalog, from the
+// same snapshot as the search index; queries never touch MySQL.
+class ServicePriceIndex implements ServiceCatalog.View {
+    // Services without a duration sort last and never pass a duration filter
+    static final int NO_DURATION = Integer.MAX_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static class Block {
+        int size;
+        int[] ids = new int[INITIAL_CAPACITY];
+        int[] prices = new int[INITIAL_CAPACITY];
+        // Seconds
+        int[] durations = new int[INITIAL_CAPACITY];
+
+        // First position whose (price, serviceid) is greater than or equal to the given one
+        int lowerBound(long price, long serviceid) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prices[mid] < price || (prices[mid] == price && ids[mid] < serviceid)) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        void insert(int serviceid, int price, int duration) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+            }
+            int at = lowerBound(price, serviceid);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(prices, at, prices, at + 1, size - at);
+            System.arraycopy(durations, at, durations, at + 1, size - at);
+            ids[at] = serviceid;
+            prices[at] = price;
+            durations[at] = duration;
+            size++;
+        }
+
+        void remove(int serviceid, int price) {
+            int at = lowerBound(price, serviceid);
+            if (at == size || ids[at] != serviceid) return;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            System.arraycopy(prices, at + 1, prices, at, size - at - 1);
+            System.arraycopy(durations, at + 1, durations, at, size - at - 1);
+            size--;
+        }
+    }
+
+    private final ServiceCatalog catalog;
+    private final Map<Integer, Block> blocks = new HashMap<>();
+    private final Map<Integer, Database.Service> services = new HashMap<>();
+    private final AtomicLong queries = new AtomicLong();
+
+    ServicePriceIndex(ServiceCatalog catalog) {
+        this.catalog = catalog;
+        catalog.register(this);
+    }
+
+    // Services of the type with minPrice <= price <= maxPrice and duration <= maxDuration seconds, by
+    // (price, serviceid) starting after (afterPrice, afterId), Long.MIN_VALUE for the first page; at most limit
+    List<Database.Service> byPrice(int typeid, int minPrice, int maxPrice, int maxDuration,
+                                   long afterPrice, long afterId, int limit) {
+        if (limit <= 0 || minPrice > maxPrice) return new ArrayList<>();
+        return catalog.read(() -> scanByPrice(typeid, minPrice, maxPrice, maxDuration, afterPrice, afterId, limit),
+                new ArrayList<>());
+    }
+
+    private List<Database.Service> scanByPrice(int typeid, int minPrice, int maxPrice, int maxDuration,
+                                               long afterPrice, long afterId, int limit) {
+        queries.incrementAndGet();
+        List<Database.Service> result = new ArrayList<>();
+        Block block = blocks.get(typeid);
+        if (block == null) return result;
+        int from = Math.max(block.lowerBound(minPrice, Long.MIN_VALUE),
+                block.lowerBound(afterPrice, afterId == Long.MAX_VALUE ? afterId : afterId + 1));
+        for (int i = from; i < block.size && block.prices[i] <= maxPrice && result.size() < limit; i++) {
+            if (block.durations[i] <= maxDuration) result.add(services.get(block.ids[i]));
+        }
+        return result;
+    }
+
+    // The limit shortest services matching the filters, by (duration, price, serviceid)
+    List<Database.Service> shortest(int typeid, int minPrice, int maxPrice, int maxDuration, int limit) {
+        if (limit <= 0 || minPrice > maxPrice) return new ArrayList<>();
+        return catalog.read(() -> scanShortest(typeid, minPrice, maxPrice, maxDuration, limit), new ArrayList<>());
+    }
+
+    private List<Database.Service> scanShortest(int typeid, int minPrice, int maxPrice, int maxDuration, int limit) {
+        queries.incrementAndGet();
+        List<Database.Service> result = new ArrayList<>();
+        Block block = blocks.get(typeid);
+        if (block == null) return result;
+        // Max-heap of duration << 32 | position; positions already order ties by (price, serviceid)
+        long[] heap = new long[Math.min(limit, block.size)];
+        int count = 0;
+        for (int i = block.lowerBound(minPrice, Long.MIN_VALUE); i < block.size && block.prices[i] <= maxPrice; i++) {
+            int duration = block.durations[i];
+            if (duration > maxDuration) continue;
+            long key = (long) duration << 32 | i;
+            if (count < heap.length) {
+                heap[count++] = key;
+                siftUp(heap, count - 1);
+            } else if (heap.length > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, count);
+            }
+        }
+        Arrays.sort(heap, 0, count);
+        for (int i = 0; i < count; i++) result.add(services.get(block.ids[(int) heap[i]]));
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= heap[i]) return;
+            long t = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = t;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int count) {
+        int i = 0;
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            if (left < count && heap[left] > heap[largest]) largest = left;
+            if (left + 1 < count && heap[left + 1] > heap[largest]) largest = left + 1;
+            if (largest == i) return;
+            long t = heap[largest];
+            heap[largest] = heap[i];
+            heap[i] = t;
+            i = largest;
+        }
+    }
+
+    @Override
+    public void reset(Database.Catalog snapshot) {
+        blocks.clear();
+        services.clear();
+        for (Database.Service service : snapshot.services) index(service);
+    }
+
+    @Override
+    public void serviceChanged(Database.Service service) {
+        index(service);
+    }
+
+    @Override
+    public void serviceRemoved(int serviceid) {
+        unindex(serviceid);
+    }
+
+    private void index(Database.Service service) {
+        unindex(service.serviceid);
+        blocks.computeIfAbsent(service.typeid, k -> new Block()).insert(service.serviceid, service.price, seconds(service));
+        services.put(service.serviceid, service);
+    }
+
+    private void unindex(int serviceid) {
+        Database.Service old = services.remove(serviceid);
+        if (old == null) return;
+        Block block = blocks.get(old.typeid);
+        if (block == null) return;
+        block.remove(serviceid, old.price);
+        if (block.size == 0) blocks.remove(old.typeid);
+    }
+
+    private static int seconds(Database.Service service) {
+        return service.duration == null ? NO_DURATION : service.duration.toLocalTime().toSecondOfDay();
+    }
+
+    ReadCache.Stats getStats() {
+        ReadCache.Stats stats = new ReadCache.Stats();
+        stats.name = "servicePrice";
+        catalog.lock.readLock().lock();
+        try {
+            stats.size = services.size();
+        } finally {
+            catalog.lock.readLock().unlock();
+        }
+        stats.hits = queries.get();
+        stats.misses = catalog.getLoads();
+        return stats;
+    }
+}
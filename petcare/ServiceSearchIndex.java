@@ -0,0 +1,271 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory inverted index over the service catalog: service name, description, service type and provider
+// business name. Text is folded to lowercase without diacritics (Vietnamese included, đ -> d) and split into
+// words, so "tam cho" finds "Tắm chó". Every query word must match; the last one also matches as a prefix for
+// typeahead. Hits are ranked by the sum over query words of idf x field weight (name counts most, then type
+// and provider, then description). Built from the loader on first use (null means failure, nothing is kept)
+// and kept current by the Database write methods (see ServiceCatalog); searches never touch MySQL.
+class ServiceSearchIndex implements ServiceCatalog.View {
+    private static final float NAME_WEIGHT = 3f;
+    private static final float TYPE_WEIGHT = 2f;
+    private static final float PROVIDER_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    // A word matched only as a prefix scores a little less than the whole word
+    private static final float PREFIX_FACTOR = 0.8f;
+    // Upper bound on words a prefix expands to, keeps one-letter typeahead fast
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    private static class Doc {
+        final Database.Service service;
+        final Map<String, Float> terms;
+
+        Doc(Database.Service service, Map<String, Float> terms) {
+            this.service = service;
+            this.terms = terms;
+        }
+    }
+
+    private static class Hit implements Comparable<Hit> {
+        final int serviceid;
+        final double score;
+
+        Hit(int serviceid, double score) {
+            this.serviceid = serviceid;
+            this.score = score;
+        }
+
+        boolean worseThan(double otherScore, int otherId) {
+            return score < otherScore || (score == otherScore && serviceid > otherId);
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            return worseThan(o.score, o.serviceid) ? -1 : o.worseThan(score, serviceid) ? 1 : 0;
+        }
+    }
+
+    private final ServiceCatalog catalog;
+    // word -> serviceid -> weight of the word in that service
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final Map<Integer, String> typeNames = new HashMap<>();
+    private final Map<Integer, String> providerNames = new HashMap<>();
+    private final AtomicLong searches = new AtomicLong();
+
+    ServiceSearchIndex(ServiceCatalog catalog) {
+        this.catalog = catalog;
+        catalog.register(this);
+    }
+
+    // Best matches first, at most limit; empty if the query has no words or the catalog could not be loaded
+    List<Database.Service> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return new ArrayList<>();
+        return catalog.read(() -> search(words, limit), new ArrayList<>());
+    }
+
+    private List<Database.Service> search(List<String> words, int limit) {
+        searches.incrementAndGet();
+        List<Database.Service> result = new ArrayList<>();
+        int last = words.size() - 1;
+        int[] df = new int[words.size()];
+        int driver = 0;
+        for (int i = 0; i < words.size(); i++) {
+            df[i] = documentFrequency(words.get(i), i == last);
+            if (df[i] == 0) return result;
+            if (df[i] < df[driver]) driver = i;
+        }
+
+        // Candidates come from the rarest word; the others are checked against each candidate's own words.
+        // Only the best limit hits are kept (worst on top, ties by lower serviceid)
+        int n = docs.size();
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1);
+        for (Map.Entry<Integer, Float> e : postingsOf(words.get(driver), driver == last).entrySet()) {
+            double score = idf(n, df[driver]) * e.getValue();
+            Map<String, Float> terms = docs.get(e.getKey()).terms;
+            for (int i = 0; i < words.size() && score > 0; i++) {
+                if (i == driver) continue;
+                float weight = weightIn(terms, words.get(i), i == last);
+                score = weight > 0 ? score + idf(n, df[i]) * weight : 0;
+            }
+            if (score <= 0) continue;
+            if (top.size() == limit && !top.peek().worseThan(score, e.getKey())) continue;
+            top.add(new Hit(e.getKey(), score));
+            if (top.size() > limit) top.poll();
+        }
+        while (!top.isEmpty()) result.add(docs.get(top.poll().serviceid).service);
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static double idf(int n, int df) {
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+
+    // Services containing the word; for a prefix, the sum over the words it expands to (an upper bound)
+    private int documentFrequency(String word, boolean prefix) {
+        if (!prefix) {
+            Map<Integer, Float> ids = postings.get(word);
+            return ids == null ? 0 : ids.size();
+        }
+        int df = 0;
+        int expanded = 0;
+        for (Map<Integer, Float> ids : expansions(word).values()) {
+            if (++expanded > MAX_PREFIX_TERMS) break;
+            df += ids.size();
+        }
+        return Math.min(df, docs.size());
+    }
+
+    // serviceid -> weight for one query word; a prefix takes the best of the words it expands to
+    private Map<Integer, Float> postingsOf(String word, boolean prefix) {
+        if (!prefix) return postings.getOrDefault(word, Map.of());
+        Map<Integer, Float> merged = new HashMap<>();
+        int expanded = 0;
+        for (Map.Entry<String, Map<Integer, Float>> term : expansions(word).entrySet()) {
+            if (++expanded > MAX_PREFIX_TERMS) break;
+            float factor = term.getKey().length() == word.length() ? 1f : PREFIX_FACTOR;
+            for (Map.Entry<Integer, Float> e : term.getValue().entrySet()) {
+                merged.merge(e.getKey(), e.getValue() * factor, Math::max);
+            }
+        }
+        return merged;
+    }
+
+    private Map<String, Map<Integer, Float>> expansions(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    // Weight of a query word in one service, 0 if it does not occur
+    private static float weightIn(Map<String, Float> terms, String word, boolean prefix) {
+        Float exact = terms.get(word);
+        if (exact != null || !prefix) return exact == null ? 0 : exact;
+        float best = 0;
+        for (Map.Entry<String, Float> e : terms.entrySet()) {
+            if (e.getKey().startsWith(word)) best = Math.max(best, e.getValue() * PREFIX_FACTOR);
+        }
+        return best;
+    }
+
+    @Override
+    public void reset(Database.Catalog snapshot) {
+        postings.clear();
+        docs.clear();
+        typeNames.clear();
+        typeNames.putAll(snapshot.typeNames);
+        providerNames.clear();
+        providerNames.putAll(snapshot.providerNames);
+        for (Database.Service service : snapshot.services) index(service);
+    }
+
+    @Override
+    public void serviceChanged(Database.Service service) {
+        index(service);
+    }
+
+    @Override
+    public void serviceRemoved(int serviceid) {
+        unindex(serviceid);
+    }
+
+    @Override
+    public void providerChanged(int providerid, String businessName) {
+        providerNames.put(providerid, businessName);
+        for (Doc doc : new ArrayList<>(docs.values())) {
+            if (doc.service.providerid == providerid) index(doc.service);
+        }
+    }
+
+    @Override
+    public void typeChanged(int typeid, String type) {
+        typeNames.put(typeid, type);
+        for (Doc doc : new ArrayList<>(docs.values())) {
+            if (doc.service.typeid == typeid) index(doc.service);
+        }
+    }
+
+    private void index(Database.Service service) {
+        unindex(service.serviceid);
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, service.name, NAME_WEIGHT);
+        addField(terms, typeNames.get(service.typeid), TYPE_WEIGHT);
+        addField(terms, providerNames.get(service.providerid), PROVIDER_WEIGHT);
+        addField(terms, service.description, DESCRIPTION_WEIGHT);
+        for (Map.Entry<String, Float> e : terms.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(service.serviceid, e.getValue());
+        }
+        docs.put(service.serviceid, new Doc(service, terms));
+    }
+
+    private void unindex(int serviceid) {
+        Doc doc = docs.remove(serviceid);
+        if (doc == null) return;
+        for (String term : doc.terms.keySet()) {
+            Map<Integer, Float> ids = postings.get(term);
+            if (ids == null) continue;
+            ids.remove(serviceid);
+            if (ids.isEmpty()) postings.remove(term);
+        }
+    }
+
+    // Repeated words count with diminishing returns so long descriptions do not dominate
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : tokenize(text)) counts.merge(word, 1, Integer::sum);
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            terms.merge(e.getKey(), weight * (1 + (float) Math.log(e.getValue())), Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) start = i;
+            if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Lowercase without accents: "Đặt lịch Tắm" -> "dat lich tam"
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (c == 'đ' || c == 'Đ') c = 'd';
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    ReadCache.Stats getStats() {
+        ReadCache.Stats stats = new ReadCache.Stats();
+        stats.name = "serviceSearch";
+        catalog.lock.readLock().lock();
+        try {
+            stats.size = docs.size();
+        } finally {
+            catalog.lock.readLock().unlock();
+        }
+        stats.hits = searches.get();
+        stats.misses = catalog.getLoads();
+        return stats;
+    }
+}
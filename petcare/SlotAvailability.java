@@ -0,0 +1,159 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// In-memory availability index: for each service a bitmap of its timeslots and, per loaded month,
+// one bitmap of booked slots per day. Bits are minutes of the day, so adding or removing a timeslot
+// only flips a bit. A slot holds a single booking (uq_booking_slot).
+// Services and months are loaded lazily through the loaders (which return null on failure, and then
+// nothing is cached) and kept up to date by the Database write methods; a service is reloaded after
+// ttlMillis to pick up changes made outside this process.
+class SlotAvailability {
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static class ServiceEntry {
+        BitSet slots;
+        final Map<YearMonth, BitSet[]> months;
+        final long expiresAt;
+        // Bumped on every write so a load that raced with a write is not cached
+        long generation;
+
+        ServiceEntry(int maxMonths, long expiresAt) {
+            this.expiresAt = expiresAt;
+            this.months = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<YearMonth, BitSet[]> eldest) {
+                    return size() > maxMonths;
+                }
+            };
+        }
+    }
+
+    private final Map<Integer, ServiceEntry> services;
+    private final int maxMonthsPerService;
+    private final long ttlMillis;
+    private final Function<Integer, BitSet> slotLoader;
+    private final BiFunction<Integer, YearMonth, BitSet[]> monthLoader;
+    private long hits;
+    private long loads;
+
+    SlotAvailability(int maxServices, int maxMonthsPerService, long ttlMillis, Function<Integer, BitSet> slotLoader,
+                     BiFunction<Integer, YearMonth, BitSet[]> monthLoader) {
+        this.maxMonthsPerService = maxMonthsPerService;
+        this.ttlMillis = ttlMillis;
+        this.slotLoader = slotLoader;
+        this.monthLoader = monthLoader;
+        this.services = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ServiceEntry> eldest) {
+                return size() > maxServices;
+            }
+        };
+    }
+
+    // Free minutes for every day of the month (index 0 is the 1st), or null if it could not be loaded
+    BitSet[] freeMonth(int serviceid, YearMonth month) {
+        ServiceEntry entry;
+        BitSet slots;
+        BitSet[] booked;
+        long generation;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            entry = services.get(serviceid);
+            if (entry == null || now >= entry.expiresAt) {
+                entry = new ServiceEntry(maxMonthsPerService, now + ttlMillis);
+                services.put(serviceid, entry);
+            }
+            slots = entry.slots;
+            booked = entry.months.get(month);
+            generation = entry.generation;
+            if (slots != null && booked != null) {
+                hits++;
+                return free(slots, booked);
+            }
+        }
+
+        // Load outside the lock; other services stay available meanwhile
+        if (slots == null) slots = slotLoader.apply(serviceid);
+        if (booked == null) booked = monthLoader.apply(serviceid, month);
+        if (slots == null || booked == null) return null;
+        synchronized (this) {
+            loads++;
+            if (entry.generation == generation && services.get(serviceid) == entry) {
+                if (entry.slots == null) entry.slots = slots;
+                entry.months.put(month, booked);
+            }
+            return free(slots, booked);
+        }
+    }
+
+    BitSet freeDay(int serviceid, LocalDate day) {
+        BitSet[] month = freeMonth(serviceid, YearMonth.from(day));
+        return month == null ? null : month[day.getDayOfMonth() - 1];
+    }
+
+    private static BitSet[] free(BitSet slots, BitSet[] booked) {
+        BitSet[] free = new BitSet[booked.length];
+        for (int d = 0; d < booked.length; d++) {
+            free[d] = (BitSet) slots.clone();
+            if (booked[d] != null) free[d].andNot(booked[d]);
+        }
+        return free;
+    }
+
+    synchronized void booked(int serviceid, LocalDate day, int minute) {
+        BitSet bits = dayBits(serviceid, day, true);
+        if (bits != null) bits.set(minute);
+    }
+
+    synchronized void released(int serviceid, LocalDate day, int minute) {
+        BitSet bits = dayBits(serviceid, day, false);
+        if (bits != null) bits.clear(minute);
+    }
+
+    private BitSet dayBits(int serviceid, LocalDate day, boolean create) {
+        ServiceEntry entry = services.get(serviceid);
+        if (entry == null) return null;
+        entry.generation++;
+        BitSet[] month = entry.months.get(YearMonth.from(day));
+        if (month == null) return null;
+        int d = day.getDayOfMonth() - 1;
+        if (month[d] == null && create) month[d] = new BitSet(MINUTES_PER_DAY);
+        return month[d];
+    }
+
+    synchronized void slotAdded(int serviceid, int minute) {
+        ServiceEntry entry = services.get(serviceid);
+        if (entry == null) return;
+        entry.generation++;
+        if (entry.slots != null) entry.slots.set(minute);
+    }
+
+    synchronized void slotRemoved(int serviceid, int minute) {
+        ServiceEntry entry = services.get(serviceid);
+        if (entry == null) return;
+        entry.generation++;
+        if (entry.slots != null) entry.slots.clear(minute);
+    }
+
+    synchronized void invalidate(int serviceid) {
+        services.remove(serviceid);
+    }
+
+    synchronized void invalidateAll() {
+        services.clear();
+    }
+
+    synchronized ReadCache.Stats getStats() {
+        ReadCache.Stats stats = new ReadCache.Stats();
+        stats.name = "slotAvailability";
+        stats.size = services.size();
+        stats.hits = hits;
+        stats.misses = loads;
+        return stats;
+    }
+}
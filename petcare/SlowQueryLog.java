@@ -0,0 +1,296 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Writes statements slower than a threshold to a rolling local file: method, SQL, bind values
+// (blobs elided, sensitive columns masked), rows changed by updates, elapsed time and optionally
+// the EXPLAIN plan.
+// Fed by the statement wrapper in DatabaseMetrics, so it is off when -Dpetcare.metrics=false.
+//
+//   -Dpetcare.slowQuery.ms=200             threshold; negative (the default) disables the log
+//   -Dpetcare.slowQuery.explain=true       run EXPLAIN on a separate, unpooled connection
+//   -Dpetcare.slowQuery.file=slow-query.log
+//   -Dpetcare.slowQuery.maxBytes=10485760  roll over to .1, .2, ... when the file gets this big
+//   -Dpetcare.slowQuery.backups=5
+//   -Dpetcare.slowQuery.maskColumns=password  comma-separated columns whose bound values are never written
+public class SlowQueryLog {
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    private static final int MAX_PARAM_LENGTH = 200;
+    private static final int QUEUE_SIZE = 1000;
+    private static final String MASKED = "<masked>";
+    private static final Pattern INSERT = Pattern.compile("(?is)^\\s*(?:INSERT|REPLACE)\\s+(?:IGNORE\\s+)?INTO\\s+\\S+\\s*\\(([^)]*)\\)\\s*VALUES\\s*");
+    private static final Pattern COMPARED = Pattern.compile("(?is)([A-Za-z_][\\w.]*)\\s*(?:=|<>|!=|<=|>=|<|>|\\bLIKE)\\s*$");
+
+    private static volatile long thresholdNanos = toNanos(Long.getLong("petcare.slowQuery.ms", -1));
+    private static volatile boolean explain = Boolean.getBoolean("petcare.slowQuery.explain");
+    private static final Path file = Paths.get(System.getProperty("petcare.slowQuery.file", "slow-query.log"));
+    private static final long maxBytes = Long.getLong("petcare.slowQuery.maxBytes", 10L * 1024 * 1024);
+    private static final int backups = Integer.getInteger("petcare.slowQuery.backups", 5);
+    private static final Set<String> maskColumns = parseColumns(System.getProperty("petcare.slowQuery.maskColumns", "password"));
+    // SQL text -> 1-based indexes of the parameters bound to a masked column; statements are constants
+    private static final Map<String, Set<Integer>> maskedParams = new ConcurrentHashMap<>();
+
+    private static final AtomicLong logged = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile ConnectionSource explainSource;
+    // Only touched from the writer thread
+    private static Connection explainConnection;
+    private static BufferedWriter writer;
+    private static long written;
+
+    // Formatting, EXPLAIN and file I/O happen off the calling thread; when the writer falls behind
+    // the oldest pending entries are dropped rather than blocking database calls
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                Thread t = new Thread(r, "petcare-slow-query-log");
+                t.setDaemon(true);
+                return t;
+            }, (r, e) -> {
+                dropped.incrementAndGet();
+                e.getQueue().poll();
+                e.getQueue().offer(r);
+            });
+
+    private static long toNanos(long millis) {
+        return millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = toNanos(millis);
+    }
+
+    public static void setExplain(boolean enabled) {
+        explain = enabled;
+    }
+
+    static void setExplainSource(ConnectionSource source) {
+        explainSource = source;
+    }
+
+    public static long getLoggedCount() {
+        return logged.get();
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Called by the statement wrapper after every execution; params maps 1-based index to bound value,
+    // rows is -1 for queries
+    static void record(String method, String sql, Map<Integer, Object> params, long rows, long elapsedNanos) {
+        long threshold = thresholdNanos;
+        if (threshold < 0 || elapsedNanos < threshold) return;
+        LocalDateTime at = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Object[] values = new Object[params.isEmpty() ? 0 : maxIndex(params)];
+        Set<Integer> masked = params.isEmpty() ? Set.of() : maskedParams.computeIfAbsent(sql, SlowQueryLog::findMaskedParams);
+        StringBuilder shown = new StringBuilder();
+        for (Map.Entry<Integer, Object> e : params.entrySet()) {
+            Object value = e.getValue();
+            boolean binary = isBinary(value);
+            values[e.getKey() - 1] = binary ? null : value;
+            if (shown.length() > 0) shown.append(", ");
+            shown.append(e.getKey()).append('=').append(masked.contains(e.getKey()) ? MASKED : describe(value));
+        }
+        executor.execute(() -> write(at, method, sql, shown.toString(), values, rows, elapsedNanos));
+    }
+
+    private static int maxIndex(Map<Integer, Object> params) {
+        int max = 0;
+        for (int index : params.keySet()) max = Math.max(max, index);
+        return max;
+    }
+
+    private static Set<String> parseColumns(String list) {
+        Set<String> columns = new HashSet<>();
+        for (String column : list.split(",")) {
+            if (!column.isBlank()) columns.add(column.trim().toLowerCase(Locale.ROOT));
+        }
+        return columns;
+    }
+
+    // Maps each ? to the column it is bound to: by position inside an INSERT's VALUES tuples, otherwise
+    // the column it is compared with or assigned to (SET password = ?, WHERE u.password = ?)
+    static Set<Integer> findMaskedParams(String sql) {
+        if (maskColumns.isEmpty()) return Set.of();
+        String[] insertColumns = null;
+        int valuesStart = -1;
+        Matcher insert = INSERT.matcher(sql);
+        if (insert.find()) {
+            insertColumns = insert.group(1).split(",");
+            valuesStart = insert.end();
+        }
+        Set<Integer> masked = new HashSet<>();
+        int index = 0;
+        int depth = 0;
+        int position = 0;
+        boolean inValues = valuesStart >= 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') quoted = !quoted;
+            if (quoted) continue;
+            if (inValues && i >= valuesStart) {
+                if (c == '(') {
+                    if (++depth == 1) position = 0;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == ',' && depth == 1) {
+                    position++;
+                } else if (depth == 0 && Character.isLetter(c)) {
+                    // ON DUPLICATE KEY UPDATE and anything else after the tuples
+                    inValues = false;
+                }
+            }
+            if (c != '?') continue;
+            index++;
+            String column = null;
+            if (inValues && i >= valuesStart && depth == 1 && position < insertColumns.length) {
+                column = insertColumns[position];
+            } else {
+                Matcher compared = COMPARED.matcher(sql.substring(Math.max(0, i - 64), i));
+                if (compared.find()) column = compared.group(1);
+            }
+            if (column != null && maskColumns.contains(unqualified(column))) masked.add(index);
+        }
+        return masked;
+    }
+
+    private static String unqualified(String column) {
+        String name = column.trim().replace("`", "");
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBinary(Object value) {
+        return value instanceof byte[] || value instanceof Blob || value instanceof Clob
+                || value instanceof InputStream || value instanceof Reader;
+    }
+
+    private static String describe(Object value) {
+        if (value == null) return "NULL";
+        if (value instanceof byte[]) return "<blob " + ((byte[]) value).length + " bytes>";
+        if (isBinary(value)) return "<" + value.getClass().getSimpleName() + ">";
+        if (value instanceof String) {
+            String s = (String) value;
+            if (s.length() > MAX_PARAM_LENGTH) s = s.substring(0, MAX_PARAM_LENGTH) + "...(" + s.length() + " chars)";
+            return "'" + s.replace("'", "''") + "'";
+        }
+        return value.toString();
+    }
+
+    private static void write(LocalDateTime at, String method, String sql, String params, Object[] values,
+                              long rows, long elapsedNanos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(at).append(" method=").append(method)
+                .append(" elapsed=").append(LatencyHistogram.format(elapsedNanos));
+        if (rows >= 0) sb.append(" rows=").append(rows);
+        sb.append('\n');
+        sb.append("  sql: ").append(sql.replaceAll("\\s+", " ").trim()).append('\n');
+        if (!params.isEmpty()) sb.append("  params: ").append(params).append('\n');
+        if (explain) appendExplain(sb, sql, values);
+        try {
+            append(sb.toString());
+            logged.incrementAndGet();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void appendExplain(StringBuilder sb, String sql, Object[] values) {
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase();
+        if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE")) return;
+        ConnectionSource source = explainSource;
+        if (source == null) return;
+        try {
+            if (explainConnection == null || explainConnection.isClosed()) explainConnection = source.open();
+            try (PreparedStatement stmt = explainConnection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < values.length; i++) stmt.setObject(i + 1, values[i]);
+                ResultSet rs = stmt.executeQuery();
+                ResultSetMetaData meta = rs.getMetaData();
+                sb.append("  explain:\n");
+                while (rs.next()) {
+                    sb.append("   ");
+                    for (int c = 1; c <= meta.getColumnCount(); c++) {
+                        sb.append(' ').append(meta.getColumnLabel(c)).append('=').append(rs.getString(c));
+                    }
+                    sb.append('\n');
+                }
+            }
+        } catch (SQLException e) {
+            sb.append("  explain failed: ").append(e.getMessage()).append('\n');
+            try {
+                if (explainConnection != null) explainConnection.close();
+            } catch (SQLException ignored) {
+            }
+            explainConnection = null;
+        }
+    }
+
+    private static void append(String entry) throws IOException {
+        byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+        if (writer == null) {
+            written = Files.exists(file) ? Files.size(file) : 0;
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        if (written > 0 && written + bytes.length > maxBytes) {
+            writer.close();
+            roll();
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            written = 0;
+        }
+        writer.write(entry);
+        writer.flush();
+        written += bytes.length;
+    }
+
+    // slow-query.log -> .1 -> .2 ... ; the oldest backup is discarded
+    private static void roll() throws IOException {
+        if (backups <= 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Files.deleteIfExists(backup(backups));
+        for (int i = backups - 1; i >= 1; i--) {
+            if (Files.exists(backup(i))) Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path backup(int n) {
+        return file.resolveSibling(file.getFileName() + "." + n);
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+// Least-loaded ticket assignment. Keeps every manager in a priority queue ordered by the number of
+// tickets they are solving (ties go to the lower id), plus which manager holds each open ticket so
+// closing or deleting a ticket can decrement the right manager. Rebuilt from the ticket table on first
+// use; the Database write methods keep it current. The table is read without holding the lock (the
+// read borrows a pooled connection, and the write hooks must not wait behind it); hook calls made
+// meanwhile are replayed on the new snapshot, which is safe because they are idempotent.
+class TicketAssigner {
+    static class Snapshot {
+        final List<Integer> managers = new ArrayList<>();
+        // ticketid -> managerid of every ticket in 'solving'
+        final Map<Integer, Integer> openTickets = new HashMap<>();
+    }
+
+    private static class Load {
+        final int managerid;
+        int open;
+
+        Load(int managerid) {
+            this.managerid = managerid;
+        }
+    }
+
+    private final Supplier<Snapshot> loader;
+    private final TreeSet<Load> queue = new TreeSet<>(Comparator.comparingInt((Load l) -> l.open).thenComparingInt(l -> l.managerid));
+    private final Map<Integer, Load> managers = new HashMap<>();
+    private final Map<Integer, Integer> openTickets = new HashMap<>();
+    private boolean loaded;
+    // One load at a time; never taken while holding this
+    private final Object loadMonitor = new Object();
+    // Hook calls made while a snapshot is being read, null when no load is in flight
+    private List<Runnable> journal;
+    private boolean invalidatedDuringLoad;
+
+    TicketAssigner(Supplier<Snapshot> loader) {
+        this.loader = loader;
+    }
+
+    // Reserve the least-loaded manager for ticketid; -1 if there are no managers or the ticket is
+    // already held (solving, or reserved by a concurrent call)
+    int reserve(int ticketid) {
+        if (!ensureLoaded()) return -1;
+        synchronized (this) {
+            if (queue.isEmpty() || openTickets.containsKey(ticketid)) return -1;
+            int managerid = queue.first().managerid;
+            assigned(ticketid, managerid);
+            return managerid;
+        }
+    }
+
+    // Undo reserve when the assignment did not happen; a later assignment to someone else is kept
+    synchronized void release(int ticketid, int managerid) {
+        record(() -> {
+            Integer current = openTickets.get(ticketid);
+            if (current != null && current == managerid) {
+                openTickets.remove(ticketid);
+                adjust(managerid, -1);
+            }
+        });
+    }
+
+    synchronized void assigned(int ticketid, int managerid) {
+        record(() -> {
+            Integer previous = openTickets.put(ticketid, managerid);
+            if (previous != null && previous == managerid) return;
+            if (previous != null) adjust(previous, -1);
+            adjust(managerid, 1);
+        });
+    }
+
+    // The ticket left 'solving' (answered, closed or deleted)
+    synchronized void closed(int ticketid) {
+        record(() -> {
+            Integer managerid = openTickets.remove(ticketid);
+            if (managerid != null) adjust(managerid, -1);
+        });
+    }
+
+    synchronized void managerAdded(int managerid) {
+        if (!loaded && journal == null) return;
+        record(() -> {
+            if (!managers.containsKey(managerid)) {
+                Load load = new Load(managerid);
+                managers.put(managerid, load);
+                queue.add(load);
+            }
+        });
+    }
+
+    // Reload from the table on next use
+    synchronized void invalidate() {
+        loaded = false;
+        if (journal != null) invalidatedDuringLoad = true;
+    }
+
+    // Apply a change now and, while a load is in flight, again on top of the snapshot it produces
+    private void record(Runnable change) {
+        change.run();
+        if (journal != null) journal.add(change);
+    }
+
+    private void adjust(int managerid, int delta) {
+        Load load = managers.get(managerid);
+        if (load == null) return;
+        queue.remove(load);
+        load.open = Math.max(0, load.open + delta);
+        queue.add(load);
+    }
+
+    // managerid -> open tickets, least loaded first
+    List<int[]> loads() {
+        List<int[]> list = new ArrayList<>();
+        if (!ensureLoaded()) return list;
+        synchronized (this) {
+            for (Load load : queue) list.add(new int[]{load.managerid, load.open});
+        }
+        return list;
+    }
+
+    private boolean ensureLoaded() {
+        synchronized (this) {
+            if (loaded) return true;
+        }
+        synchronized (loadMonitor) {
+            synchronized (this) {
+                if (loaded) return true;
+            }
+            return rebuild();
+        }
+    }
+
+    boolean rebuild() {
+        synchronized (loadMonitor) {
+            synchronized (this) {
+                journal = new ArrayList<>();
+                invalidatedDuringLoad = false;
+            }
+            Snapshot snapshot = loader.get();
+            synchronized (this) {
+                List<Runnable> changes = journal;
+                journal = null;
+                if (snapshot == null) return false;
+                queue.clear();
+                managers.clear();
+                openTickets.clear();
+                for (int managerid : snapshot.managers) managers.put(managerid, new Load(managerid));
+                for (Map.Entry<Integer, Integer> e : snapshot.openTickets.entrySet()) {
+                    Load load = managers.get(e.getValue());
+                    if (load == null) continue;
+                    openTickets.put(e.getKey(), e.getValue());
+                    load.open++;
+                }
+                queue.addAll(managers.values());
+                for (Runnable change : changes) change.run();
+                // An invalidate during the read means the snapshot may predate it: use it, but reload next time
+                loaded = !invalidatedDuringLoad;
+                return true;
+            }
+        }
+    }
+}
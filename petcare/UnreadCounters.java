@@ -0,0 +1,55 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Per-user unread notification counts kept in memory. Loaded from the table on first use (the loader
+// returns null on failure) and then adjusted by the Database write methods.
+class UnreadCounters {
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final Supplier<Map<Integer, Integer>> loader;
+    private final Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+    // Bumped on every adjustment so a rebuild that raced with writes can be retried
+    private final AtomicLong writes = new AtomicLong();
+    private volatile boolean loaded;
+
+    UnreadCounters(Supplier<Map<Integer, Integer>> loader) {
+        this.loader = loader;
+    }
+
+    int get(int userid) {
+        if (!loaded) rebuild();
+        AtomicInteger count = counts.get(userid);
+        return count == null ? 0 : Math.max(0, count.get());
+    }
+
+    void add(int userid, int delta) {
+        writes.incrementAndGet();
+        if (delta == 0) return;
+        counts.computeIfAbsent(userid, k -> new AtomicInteger()).addAndGet(delta);
+    }
+
+    void remove(int userid) {
+        writes.incrementAndGet();
+        counts.remove(userid);
+    }
+
+    // Reload every count from the table; returns false if the table could not be read
+    synchronized boolean rebuild() {
+        for (int attempt = 1; ; attempt++) {
+            long before = writes.get();
+            Map<Integer, Integer> fresh = loader.get();
+            if (fresh == null) return false;
+            // Writes that landed while we were reading may or may not be in the snapshot
+            if (writes.get() != before && attempt < MAX_REBUILD_ATTEMPTS) continue;
+            counts.keySet().retainAll(fresh.keySet());
+            for (Map.Entry<Integer, Integer> e : fresh.entrySet()) {
+                counts.computeIfAbsent(e.getKey(), k -> new AtomicInteger()).set(e.getValue());
+            }
+            loaded = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+-- Schema used by Database.java (MySQL 8)
+-- Column names follow the code, including the historical spellings bussiness_name, respone and tittle.
+
+CREATE TABLE IF NOT EXISTS user (
+    userid INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    gender VARCHAR(20),
+    role VARCHAR(30) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS manager (
+    id INT PRIMARY KEY,
+    FOREIGN KEY (id) REFERENCES user(userid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS petowner (
+    id INT PRIMARY KEY,
+    phone VARCHAR(20),
+    city VARCHAR(100),
+    address VARCHAR(255),
+    FOREIGN KEY (id) REFERENCES user(userid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS serviceprovider (
+    id INT PRIMARY KEY,
+    bussiness_name VARCHAR(255),
+    logo MEDIUMBLOB,
+    phone VARCHAR(20),
+    description TEXT,
+    address VARCHAR(255),
+    website VARCHAR(255),
+    FOREIGN KEY (id) REFERENCES user(userid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS ticket (
+    ticketid INT AUTO_INCREMENT PRIMARY KEY,
+    subject VARCHAR(255) NOT NULL,
+    description TEXT,
+    attachment MEDIUMBLOB,
+    respone MEDIUMBLOB,
+    status VARCHAR(20) NOT NULL DEFAULT 'pending',
+    userid INT NOT NULL,
+    createtime TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    managerid INT NULL,
+    assigntime TIMESTAMP NULL,
+    INDEX idx_ticket_user (userid, ticketid),
+    INDEX idx_ticket_manager (managerid, ticketid),
+    INDEX idx_ticket_status (status),
+    FOREIGN KEY (userid) REFERENCES user(userid) ON DELETE CASCADE,
+    FOREIGN KEY (managerid) REFERENCES manager(id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS pet (
+    petid INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    breed VARCHAR(100),
+    description TEXT,
+    picture MEDIUMBLOB,
+    age INT,
+    dob DATE,
+    userid INT NOT NULL,
+    INDEX idx_pet_user (userid),
+    FOREIGN KEY (userid) REFERENCES petowner(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS diet (
+    dietid INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    amount VARCHAR(100),
+    description TEXT,
+    petid INT NOT NULL,
+    FOREIGN KEY (petid) REFERENCES pet(petid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS activity (
+    activityid INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description TEXT,
+    petid INT NOT NULL,
+    FOREIGN KEY (petid) REFERENCES pet(petid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS petschedule (
+    petscheduleid INT AUTO_INCREMENT PRIMARY KEY,
+    startdate DATE NOT NULL,
+    repeat_option VARCHAR(20) NOT NULL,
+    hour INT NOT NULL,
+    minute INT NOT NULL,
+    dietid INT NULL,
+    activityid INT NULL,
+    FOREIGN KEY (dietid) REFERENCES diet(dietid) ON DELETE CASCADE,
+    FOREIGN KEY (activityid) REFERENCES activity(activityid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS servicetype (
+    typeid INT AUTO_INCREMENT PRIMARY KEY,
+    type VARCHAR(100) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS service (
+    serviceid INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    price INT NOT NULL,
+    description TEXT,
+    duration TIME,
+    license MEDIUMBLOB,
+    typeid INT NOT NULL,
+    providerid INT NOT NULL,
+    INDEX idx_service_type (typeid),
+    INDEX idx_service_provider (providerid),
+    FOREIGN KEY (typeid) REFERENCES servicetype(typeid) ON DELETE CASCADE,
+    FOREIGN KEY (providerid) REFERENCES serviceprovider(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS timeslot (
+    serviceid INT NOT NULL,
+    slot TIME NOT NULL,
+    PRIMARY KEY (serviceid, slot),
+    FOREIGN KEY (serviceid) REFERENCES service(serviceid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking (
+    bookid INT AUTO_INCREMENT PRIMARY KEY,
+    poid INT NOT NULL,
+    svid INT NOT NULL,
+    slot TIME NOT NULL,
+    serveDate DATE NOT NULL,
+    book_timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    payment_method VARCHAR(30),
+    status VARCHAR(20),
+    INDEX idx_booking_owner (poid, bookid),
+    -- One booking per slot; also serves the per-service/date lookups.
+    -- Existing databases: ALTER TABLE booking DROP INDEX idx_booking_service_date,
+    --   ADD UNIQUE KEY uq_booking_slot (svid, serveDate, slot);
+    UNIQUE KEY uq_booking_slot (svid, serveDate, slot),
+    FOREIGN KEY (poid) REFERENCES petowner(id) ON DELETE CASCADE,
+    FOREIGN KEY (svid) REFERENCES service(serviceid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking_pet (
+    bookid INT NOT NULL,
+    petid INT NOT NULL,
+    PRIMARY KEY (bookid, petid),
+    FOREIGN KEY (bookid) REFERENCES booking(bookid) ON DELETE CASCADE,
+    FOREIGN KEY (petid) REFERENCES pet(petid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS service_report (
+    bookid INT PRIMARY KEY,
+    text TEXT,
+    image MEDIUMBLOB,
+    FOREIGN KEY (bookid) REFERENCES booking(bookid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS service_review (
+    bookid INT PRIMARY KEY,
+    start INT,
+    comment TEXT,
+    FOREIGN KEY (bookid) REFERENCES booking(bookid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS service_update (
+    bookid INT NOT NULL,
+    no_update INT NOT NULL,
+    text TEXT,
+    image MEDIUMBLOB,
+    PRIMARY KEY (bookid, no_update),
+    FOREIGN KEY (bookid) REFERENCES booking(bookid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS notification (
+    notiid INT AUTO_INCREMENT PRIMARY KEY,
+    userid INT NOT NULL,
+    text TEXT,
+    is_read BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Existing databases: ALTER TABLE notification ADD COLUMN is_read BOOLEAN NOT NULL DEFAULT FALSE,
+    --   ADD COLUMN created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, ADD INDEX idx_notification_unread (is_read, userid);
+    INDEX idx_notification_user (userid, notiid),
+    INDEX idx_notification_unread (is_read, userid),
+    FOREIGN KEY (userid) REFERENCES user(userid) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS schedule (
+    scheduleid INT AUTO_INCREMENT PRIMARY KEY,
+    scheduled_time DATETIME NOT NULL,
+    tittle VARCHAR(255),
+    detail TEXT,
+    userid INT NOT NULL,
+    -- scheduled_time a reminder was sent for; moving the schedule re-arms it
+    reminded_time DATETIME NULL,
+    -- Existing databases: ALTER TABLE schedule ADD COLUMN reminded_time DATETIME NULL;
+    INDEX idx_schedule_user (userid, scheduled_time, scheduleid),
+    INDEX idx_schedule_time (scheduled_time, scheduleid),
+    FOREIGN KEY (userid) REFERENCES user(userid) ON DELETE CASCADE
+);